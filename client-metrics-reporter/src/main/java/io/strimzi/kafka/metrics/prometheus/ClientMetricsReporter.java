@@ -8,11 +8,15 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
 import io.prometheus.metrics.model.snapshots.PrometheusNaming;
 import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
 import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.common.SeriesLimits;
 import io.strimzi.kafka.metrics.prometheus.http.HttpServers;
 import io.strimzi.kafka.metrics.prometheus.kafka.KafkaCollector;
 import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import io.strimzi.kafka.metrics.prometheus.push.Pushers;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.metrics.KafkaMetric;
 import org.apache.kafka.common.metrics.MetricsContext;
@@ -24,7 +28,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * {@link MetricsReporter} implementation that exposes Kafka client metrics in the Prometheus format.
@@ -42,10 +45,12 @@ public class ClientMetricsReporter extends AbstractReporter implements MetricsRe
     );
 
     final PrometheusRegistry registry;
+    final PrometheusCollector prometheusCollector;
     final KafkaCollector kafkaCollector;
 
     private ClientMetricsReporterConfig config;
     Optional<HttpServers.ServerCounter> httpServer = Optional.empty();
+    Optional<Pushers.PusherCounter> pusher = Optional.empty();
     @SuppressFBWarnings({"UWF_FIELD_NOT_INITIALIZED_IN_CONSTRUCTOR"}) // This field is initialized in the contextChange method
     String prefix;
 
@@ -54,21 +59,29 @@ public class ClientMetricsReporter extends AbstractReporter implements MetricsRe
      */
     public ClientMetricsReporter() {
         registry = PrometheusRegistry.defaultRegistry;
-        kafkaCollector = KafkaCollector.getCollector(PrometheusCollector.register(registry));
+        prometheusCollector = PrometheusCollector.register(registry);
+        kafkaCollector = KafkaCollector.getCollector(prometheusCollector);
         kafkaCollector.addReporter(this);
+        prometheusCollector.acquire();
     }
 
     // for testing
-    ClientMetricsReporter(PrometheusRegistry registry, KafkaCollector kafkaCollector) {
+    ClientMetricsReporter(PrometheusRegistry registry, PrometheusCollector prometheusCollector, KafkaCollector kafkaCollector) {
         this.registry = registry;
+        this.prometheusCollector = prometheusCollector;
         this.kafkaCollector = kafkaCollector;
         kafkaCollector.addReporter(this);
+        prometheusCollector.acquire();
     }
 
     @Override
     public void configure(Map<String, ?> map) {
         config = new ClientMetricsReporterConfig(map, registry);
+        prometheusCollector.setScrapeCacheMs(config.scrapeCacheMs());
+        prometheusCollector.setCollectionIntervalMs(config.collectionIntervalMs());
+        kafkaCollector.setParallelism(config.collectionParallelism());
         httpServer = config.startHttpServer();
+        pusher = config.startPusher();
         LOG.debug("ClientMetricsReporter configured with {}", config);
     }
 
@@ -81,20 +94,20 @@ public class ClientMetricsReporter extends AbstractReporter implements MetricsRe
 
     @Override
     public void metricChange(KafkaMetric metric) {
-        String prometheusName = KafkaMetricWrapper.prometheusName(prefix, metric.metricName());
-        MetricWrapper metricWrapper = new KafkaMetricWrapper(prometheusName, metric, metric.metricName().name());
-        addMetric(metric, metricWrapper);
+        addMetric(metric, KafkaMetricWrapper.prometheusName(prefix, metric.metricName()), metric);
     }
 
     @Override
     public void metricRemoval(KafkaMetric metric) {
-        removeMetric(metric);
+        removeMetric(metric, KafkaMetricWrapper.prometheusName(prefix, metric.metricName()));
     }
 
     @Override
     public void close() {
         kafkaCollector.removeReporter(this);
+        prometheusCollector.release();
         httpServer.ifPresent(HttpServers::release);
+        pusher.ifPresent(Pushers::release);
     }
 
     @Override
@@ -126,8 +139,29 @@ public class ClientMetricsReporter extends AbstractReporter implements MetricsRe
     }
 
     @Override
-    protected Pattern allowlist() {
+    protected MetricNameMatcher allowlist() {
         return config.allowlist();
     }
 
+    @Override
+    protected MetricNameMatcher denylist() {
+        return config.denylist();
+    }
+
+    @Override
+    protected LabelFilter labelFilter() {
+        return config.labelFilter();
+    }
+
+    @Override
+    protected SeriesLimits seriesLimits() {
+        return config.seriesLimits();
+    }
+
+    @Override
+    protected MetricWrapper metricWrapper(Object name, String prometheusName, Object metric) {
+        KafkaMetric kafkaMetric = (KafkaMetric) metric;
+        return new KafkaMetricWrapper(prometheusName, kafkaMetric, kafkaMetric.metricName().name(), labelFilter());
+    }
+
 }
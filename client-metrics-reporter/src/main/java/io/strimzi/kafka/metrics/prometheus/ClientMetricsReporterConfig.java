@@ -6,20 +6,29 @@ package io.strimzi.kafka.metrics.prometheus;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.SeriesLimits;
+import io.strimzi.kafka.metrics.prometheus.http.ExpositionFormat;
 import io.strimzi.kafka.metrics.prometheus.http.HttpServers;
 import io.strimzi.kafka.metrics.prometheus.http.Listener;
+import io.strimzi.kafka.metrics.prometheus.http.ListenerOptions;
+import io.strimzi.kafka.metrics.prometheus.push.PushOptions;
+import io.strimzi.kafka.metrics.prometheus.push.Pushers;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
-import java.util.stream.Collectors;
 
 /**
 * Configuration for {@link ClientMetricsReporter}.
@@ -27,7 +36,7 @@ import java.util.stream.Collectors;
 public class ClientMetricsReporterConfig extends AbstractConfig {
 
     private static final Logger LOG = LoggerFactory.getLogger(ClientMetricsReporterConfig.class);
-    private static final String CONFIG_PREFIX = "prometheus.metrics.reporter.";
+    static final String CONFIG_PREFIX = "prometheus.metrics.reporter.";
 
     /**
      * Configuration key for the listener to expose the metrics.
@@ -62,15 +71,321 @@ public class ClientMetricsReporterConfig extends AbstractConfig {
     public static final String ALLOWLIST_CONFIG_DEFAULT = ".*";
     private static final String ALLOWLIST_CONFIG_DOC = "A comma separated list of regex patterns to specify the metrics to collect.";
 
+    /**
+     * Configuration key for the denylist of metrics not to collect.
+     */
+    public static final String DENYLIST_CONFIG = CONFIG_PREFIX + "denylist";
+
+    /**
+     * Default value for the denylist configuration.
+     */
+    public static final String DENYLIST_CONFIG_DEFAULT = "";
+    private static final String DENYLIST_CONFIG_DOC = "A comma separated list of regex patterns to specify the metrics not to collect, even if they match the allowlist.";
+
+    /**
+     * Configuration key for the labels to drop from metrics.
+     */
+    public static final String LABELS_DROP_CONFIG = CONFIG_PREFIX + "labels.drop";
+
+    /**
+     * Default value for the labels to drop configuration.
+     */
+    public static final String LABELS_DROP_CONFIG_DEFAULT = "";
+    private static final String LABELS_DROP_CONFIG_DOC = "A comma separated list of rules in the <metric regex>=<label>;<label> format. " +
+            "The listed labels are dropped from the metrics matching the regex. Series that end up with the same labels are collapsed into a single series.";
+
+    /**
+     * Configuration key for the labels to keep on metrics.
+     */
+    public static final String LABELS_KEEP_CONFIG = CONFIG_PREFIX + "labels.keep";
+
+    /**
+     * Default value for the labels to keep configuration.
+     */
+    public static final String LABELS_KEEP_CONFIG_DEFAULT = "";
+    private static final String LABELS_KEEP_CONFIG_DOC = "A comma separated list of rules in the <metric regex>=<label>;<label> format. " +
+            "Only the listed labels are kept on the metrics matching the regex. Series that end up with the same labels are collapsed into a single series.";
+
+    /**
+     * Configuration key for the gauges whose values can be summed.
+     */
+    public static final String ADDITIVE_GAUGES_CONFIG = CONFIG_PREFIX + "additive.gauges";
+
+    /**
+     * Default value for the additive gauges configuration.
+     */
+    public static final String ADDITIVE_GAUGES_CONFIG_DEFAULT = "";
+    private static final String ADDITIVE_GAUGES_CONFIG_DOC = "A comma separated list of regex patterns to specify the gauges whose values are summed when " +
+            "their series are collapsed after dropping labels. Counters are always summed. For other metrics, a single series is kept.";
+
+    /**
+     * Configuration key for the maximum number of series exported by a reporter.
+     */
+    public static final String SERIES_LIMIT_CONFIG = CONFIG_PREFIX + "series.limit";
+
+    /**
+     * Default value for the series limit configuration.
+     */
+    public static final int SERIES_LIMIT_CONFIG_DEFAULT = 0;
+    private static final String SERIES_LIMIT_CONFIG_DOC = "The maximum number of series exported by the reporter. Each reporter of a JVM has its own limit. " +
+            "Metrics added once the limit is reached are handled according to " + CONFIG_PREFIX + "series.limit.action. When set to 0, the number of series is not limited.";
+
+    /**
+     * Configuration key for the maximum number of series per metric family.
+     */
+    public static final String SERIES_LIMIT_PER_FAMILY_CONFIG = CONFIG_PREFIX + "series.limit.per.family";
+
+    /**
+     * Default value for the series limit per family configuration.
+     */
+    public static final int SERIES_LIMIT_PER_FAMILY_CONFIG_DEFAULT = 0;
+    private static final String SERIES_LIMIT_PER_FAMILY_CONFIG_DOC = "The maximum number of series exported for each metric name. " +
+            "Metrics added once the limit is reached are handled according to " + CONFIG_PREFIX + "series.limit.action. When set to 0, the number of series is not limited.";
+
+    /**
+     * Configuration key for the action taken on metrics exceeding the series limits.
+     */
+    public static final String SERIES_LIMIT_ACTION_CONFIG = CONFIG_PREFIX + "series.limit.action";
+
+    /**
+     * Default value for the series limit action configuration.
+     */
+    public static final String SERIES_LIMIT_ACTION_CONFIG_DEFAULT = "drop";
+    private static final String SERIES_LIMIT_ACTION_CONFIG_DOC = "The action taken on metrics exceeding the series limits. With drop, the metrics are not exported. " +
+            "With overflow, they are folded into a single series per metric name with the overflow=\"true\" label.";
+
+    /**
+     * Configuration key for the maximum age of collected metrics that can be served to scrapes.
+     */
+    public static final String SCRAPE_CACHE_MS_CONFIG = CONFIG_PREFIX + "scrape.cache.ms";
+
+    /**
+     * Default value for the scrape cache configuration.
+     */
+    public static final long SCRAPE_CACHE_MS_CONFIG_DEFAULT = 0L;
+    private static final String SCRAPE_CACHE_MS_CONFIG_DOC = "The maximum age in milliseconds of the collected metrics that can be served to scrapes. " +
+            "Concurrent scrapes share a single collection. When set to 0, metrics are collected on every scrape. " +
+            "This is shared by all the reporters of a JVM, the value of the last configured reporter applies.";
+
+    /**
+     * Configuration key for the interval at which metrics are collected in the background.
+     */
+    public static final String COLLECTION_INTERVAL_MS_CONFIG = CONFIG_PREFIX + "collection.interval.ms";
+
+    /**
+     * Default value for the collection interval configuration.
+     */
+    public static final long COLLECTION_INTERVAL_MS_CONFIG_DEFAULT = 0L;
+    private static final String COLLECTION_INTERVAL_MS_CONFIG_DOC = "The interval in milliseconds at which metrics are collected by a background thread. " +
+            "Scrapes are served the latest collected metrics. When set to 0, metrics are collected when they are scraped. " +
+            "This is shared by all the reporters of a JVM, the value of the last configured reporter applies.";
+
+    /**
+     * Configuration key for the number of threads collecting the Kafka metrics reporters.
+     */
+    public static final String COLLECTION_PARALLELISM_CONFIG = CONFIG_PREFIX + "collection.parallelism";
+
+    /**
+     * Default value for the collection parallelism configuration.
+     */
+    public static final int COLLECTION_PARALLELISM_CONFIG_DEFAULT = 1;
+    private static final String COLLECTION_PARALLELISM_CONFIG_DOC = "The number of threads collecting the metrics of the Kafka metrics reporters. " +
+            "With more than 1 thread, the metric families of all the reporters, for example of the connectors and tasks of a Connect worker, " +
+            "are split across the threads. When set to 1, the metrics are collected sequentially. " +
+            "This is shared by all the reporters of a JVM, the value of the last configured reporter applies.";
+
+    /**
+     * Configuration key to determine if the listener caches the rendered responses.
+     */
+    public static final String LISTENER_CACHE_ENABLE_CONFIG = CONFIG_PREFIX + "listener.cache.enable";
+
+    /**
+     * Default value for the listener cache enabled configuration.
+     */
+    public static final Boolean LISTENER_CACHE_ENABLE_CONFIG_DEFAULT = false;
+    private static final String LISTENER_CACHE_ENABLE_CONFIG_DOC = "Enable the listener to render each exposition format once per " +
+            "collection cycle and serve the rendered, and compressed, responses to all scrapes within the cycle. The cycle is " +
+            COLLECTION_INTERVAL_MS_CONFIG + " if set, otherwise " + SCRAPE_CACHE_MS_CONFIG + ".";
+
+    /**
+     * Configuration key to determine if the listener streams the responses.
+     */
+    public static final String LISTENER_STREAMING_ENABLE_CONFIG = CONFIG_PREFIX + "listener.streaming.enable";
+
+    /**
+     * Default value for the listener streaming enabled configuration.
+     */
+    public static final Boolean LISTENER_STREAMING_ENABLE_CONFIG_DEFAULT = false;
+    private static final String LISTENER_STREAMING_ENABLE_CONFIG_DOC = "Enable the listener to stream the responses using chunked transfer encoding " +
+            "instead of rendering them in memory before sending them. This has no effect when " + LISTENER_CACHE_ENABLE_CONFIG + " is enabled.";
+
+    /**
+     * Configuration key to determine if the listener handles requests on virtual threads.
+     */
+    public static final String LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG = CONFIG_PREFIX + "listener.virtual.threads.enable";
+
+    /**
+     * Default value for the listener virtual threads enabled configuration.
+     */
+    public static final Boolean LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG_DEFAULT = false;
+    private static final String LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG_DOC = "Enable the listener to handle each request on its own virtual thread. " +
+            "This requires Java 21 or newer, on older versions requests are handled on platform threads.";
+
+    /**
+     * Configuration key for the maximum number of requests the listener handles concurrently.
+     */
+    public static final String LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG = CONFIG_PREFIX + "listener.max.inflight.requests";
+
+    /**
+     * Default value for the listener maximum in-flight requests configuration.
+     */
+    public static final int LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG_DEFAULT = 0;
+
+    /**
+     * Maximum number of in-flight requests used when virtual threads are enabled and the limit is not set.
+     */
+    public static final int LISTENER_MAX_INFLIGHT_REQUESTS_VIRTUAL_THREADS_DEFAULT = 100;
+    private static final String LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG_DOC = "The maximum number of scrapes the listener handles concurrently. " +
+            "Scrapes exceeding the limit are rejected with a 503 response. When set to 0, the number of concurrent scrapes is not limited. " +
+            "When " + LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG + " is enabled and this is not set, the limit is " + LISTENER_MAX_INFLIGHT_REQUESTS_VIRTUAL_THREADS_DEFAULT + ".";
+
+    /**
+     * Configuration key for the exposition format served by the listener.
+     */
+    public static final String LISTENER_FORMAT_CONFIG = CONFIG_PREFIX + "listener.format";
+
+    /**
+     * Default value for the listener format configuration.
+     */
+    public static final String LISTENER_FORMAT_CONFIG_DEFAULT = "auto";
+    private static final String LISTENER_FORMAT_CONFIG_DOC = "The exposition format served by the listener, one of auto, text, openmetrics or protobuf. " +
+            "With auto, the format is negotiated from the Accept header of each scrape.";
+
+    /**
+     * Configuration key for the OTLP/HTTP endpoint to push metrics to.
+     */
+    public static final String PUSH_URL_CONFIG = CONFIG_PREFIX + "push.url";
+
+    /**
+     * Default value for the push URL configuration.
+     */
+    public static final String PUSH_URL_CONFIG_DEFAULT = "";
+    private static final String PUSH_URL_CONFIG_DOC = "The OTLP/HTTP metrics endpoint to push metrics to, for example http://localhost:4318/v1/metrics. " +
+            "Only the series whose value changed since they were last pushed are sent. When empty, metrics are not pushed.";
+
+    /**
+     * Configuration key for the interval between pushes.
+     */
+    public static final String PUSH_INTERVAL_MS_CONFIG = CONFIG_PREFIX + "push.interval.ms";
+
+    /**
+     * Default value for the push interval configuration.
+     */
+    public static final long PUSH_INTERVAL_MS_CONFIG_DEFAULT = 30_000L;
+    private static final String PUSH_INTERVAL_MS_CONFIG_DOC = "The interval in milliseconds between pushes, also used as the timeout of each push request.";
+
+    /**
+     * Configuration key for the maximum number of data points per push request.
+     */
+    public static final String PUSH_BATCH_SIZE_CONFIG = CONFIG_PREFIX + "push.batch.size";
+
+    /**
+     * Default value for the push batch size configuration.
+     */
+    public static final int PUSH_BATCH_SIZE_CONFIG_DEFAULT = 1000;
+    private static final String PUSH_BATCH_SIZE_CONFIG_DOC = "The maximum number of data points sent in each push request.";
+
+    /**
+     * Configuration key for the interval after which unchanged series are pushed again.
+     */
+    public static final String PUSH_RESEND_INTERVAL_MS_CONFIG = CONFIG_PREFIX + "push.resend.interval.ms";
+
+    /**
+     * Default value for the push resend interval configuration.
+     */
+    public static final long PUSH_RESEND_INTERVAL_MS_CONFIG_DEFAULT = 120_000L;
+    private static final String PUSH_RESEND_INTERVAL_MS_CONFIG_DOC = "The interval in milliseconds after which series whose value did not change are pushed again, " +
+            "so receivers don't consider them stale. The default leaves a margin below the 5 minute staleness period of Prometheus. " +
+            "When set to 0, only changed series are pushed.";
+
+    /**
+     * Configuration key for the directory where push requests that could not be sent are spooled.
+     */
+    public static final String PUSH_SPOOL_DIR_CONFIG = CONFIG_PREFIX + "push.spool.dir";
+
+    /**
+     * Default value for the push spool directory configuration.
+     */
+    public static final String PUSH_SPOOL_DIR_CONFIG_DEFAULT = "";
+    private static final String PUSH_SPOOL_DIR_CONFIG_DOC = "The directory where push requests that could not be sent are spooled in memory-mapped segment files, " +
+            "to be sent once the endpoint is available again. When empty, requests that could not be sent are dropped and the changed series are pushed again on the next push.";
+
+    /**
+     * Configuration key for the maximum size of the push spool.
+     */
+    public static final String PUSH_SPOOL_MAX_BYTES_CONFIG = CONFIG_PREFIX + "push.spool.max.bytes";
+
+    /**
+     * Default value for the push spool maximum size configuration.
+     */
+    public static final long PUSH_SPOOL_MAX_BYTES_CONFIG_DEFAULT = 100L * 1024 * 1024;
+    private static final String PUSH_SPOOL_MAX_BYTES_CONFIG_DOC = "The maximum size in bytes of the spool segment files. When it is reached, the oldest requests are dropped.";
+
+    /**
+     * Configuration key for the number of spooled requests sent on each push.
+     */
+    public static final String PUSH_SPOOL_REPLAY_BATCHES_CONFIG = CONFIG_PREFIX + "push.spool.replay.batches";
+
+    /**
+     * Default value for the push spool replay configuration.
+     */
+    public static final int PUSH_SPOOL_REPLAY_BATCHES_CONFIG_DEFAULT = 10;
+    private static final String PUSH_SPOOL_REPLAY_BATCHES_CONFIG_DOC = "The maximum number of older spooled requests sent on each push, oldest first, once the endpoint is available again. " +
+            "The requests of the push itself are also sent, so the spool shrinks by up to this number of requests on each push.";
+
     static final ConfigDef CONFIG_DEF = new ConfigDef()
             .define(LISTENER_CONFIG, ConfigDef.Type.STRING, LISTENER_CONFIG_DEFAULT, new Listener.ListenerValidator(), ConfigDef.Importance.HIGH, LISTENER_CONFIG_DOC)
             .define(ALLOWLIST_CONFIG, ConfigDef.Type.LIST, ALLOWLIST_CONFIG_DEFAULT, ConfigDef.Importance.HIGH, ALLOWLIST_CONFIG_DOC)
-            .define(LISTENER_ENABLE_CONFIG, ConfigDef.Type.BOOLEAN, LISTENER_ENABLE_CONFIG_DEFAULT, ConfigDef.Importance.HIGH, LISTENER_ENABLE_CONFIG_DOC);
+            .define(DENYLIST_CONFIG, ConfigDef.Type.LIST, DENYLIST_CONFIG_DEFAULT, ConfigDef.Importance.MEDIUM, DENYLIST_CONFIG_DOC)
+            .define(LABELS_DROP_CONFIG, ConfigDef.Type.LIST, LABELS_DROP_CONFIG_DEFAULT, ConfigDef.Importance.MEDIUM, LABELS_DROP_CONFIG_DOC)
+            .define(LABELS_KEEP_CONFIG, ConfigDef.Type.LIST, LABELS_KEEP_CONFIG_DEFAULT, ConfigDef.Importance.MEDIUM, LABELS_KEEP_CONFIG_DOC)
+            .define(ADDITIVE_GAUGES_CONFIG, ConfigDef.Type.LIST, ADDITIVE_GAUGES_CONFIG_DEFAULT, ConfigDef.Importance.LOW, ADDITIVE_GAUGES_CONFIG_DOC)
+            .define(SERIES_LIMIT_CONFIG, ConfigDef.Type.INT, SERIES_LIMIT_CONFIG_DEFAULT, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, SERIES_LIMIT_CONFIG_DOC)
+            .define(SERIES_LIMIT_PER_FAMILY_CONFIG, ConfigDef.Type.INT, SERIES_LIMIT_PER_FAMILY_CONFIG_DEFAULT, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, SERIES_LIMIT_PER_FAMILY_CONFIG_DOC)
+            .define(SERIES_LIMIT_ACTION_CONFIG, ConfigDef.Type.STRING, SERIES_LIMIT_ACTION_CONFIG_DEFAULT, ConfigDef.ValidString.in("drop", "overflow"), ConfigDef.Importance.LOW, SERIES_LIMIT_ACTION_CONFIG_DOC)
+            .define(LISTENER_ENABLE_CONFIG, ConfigDef.Type.BOOLEAN, LISTENER_ENABLE_CONFIG_DEFAULT, ConfigDef.Importance.HIGH, LISTENER_ENABLE_CONFIG_DOC)
+            .define(SCRAPE_CACHE_MS_CONFIG, ConfigDef.Type.LONG, SCRAPE_CACHE_MS_CONFIG_DEFAULT, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, SCRAPE_CACHE_MS_CONFIG_DOC)
+            .define(COLLECTION_INTERVAL_MS_CONFIG, ConfigDef.Type.LONG, COLLECTION_INTERVAL_MS_CONFIG_DEFAULT, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, COLLECTION_INTERVAL_MS_CONFIG_DOC)
+            .define(COLLECTION_PARALLELISM_CONFIG, ConfigDef.Type.INT, COLLECTION_PARALLELISM_CONFIG_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, COLLECTION_PARALLELISM_CONFIG_DOC)
+            .define(LISTENER_CACHE_ENABLE_CONFIG, ConfigDef.Type.BOOLEAN, LISTENER_CACHE_ENABLE_CONFIG_DEFAULT, ConfigDef.Importance.MEDIUM, LISTENER_CACHE_ENABLE_CONFIG_DOC)
+            .define(LISTENER_FORMAT_CONFIG, ConfigDef.Type.STRING, LISTENER_FORMAT_CONFIG_DEFAULT, ConfigDef.ValidString.in("auto", "text", "openmetrics", "protobuf"), ConfigDef.Importance.LOW, LISTENER_FORMAT_CONFIG_DOC)
+            .define(LISTENER_STREAMING_ENABLE_CONFIG, ConfigDef.Type.BOOLEAN, LISTENER_STREAMING_ENABLE_CONFIG_DEFAULT, ConfigDef.Importance.LOW, LISTENER_STREAMING_ENABLE_CONFIG_DOC)
+            .define(LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG, ConfigDef.Type.BOOLEAN, LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG_DEFAULT, ConfigDef.Importance.LOW, LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG_DOC)
+            .define(LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG, ConfigDef.Type.INT, LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG_DEFAULT, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG_DOC)
+            .define(PUSH_URL_CONFIG, ConfigDef.Type.STRING, PUSH_URL_CONFIG_DEFAULT, ConfigDef.Importance.MEDIUM, PUSH_URL_CONFIG_DOC)
+            .define(PUSH_INTERVAL_MS_CONFIG, ConfigDef.Type.LONG, PUSH_INTERVAL_MS_CONFIG_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, PUSH_INTERVAL_MS_CONFIG_DOC)
+            .define(PUSH_BATCH_SIZE_CONFIG, ConfigDef.Type.INT, PUSH_BATCH_SIZE_CONFIG_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, PUSH_BATCH_SIZE_CONFIG_DOC)
+            .define(PUSH_RESEND_INTERVAL_MS_CONFIG, ConfigDef.Type.LONG, PUSH_RESEND_INTERVAL_MS_CONFIG_DEFAULT, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, PUSH_RESEND_INTERVAL_MS_CONFIG_DOC)
+            .define(PUSH_SPOOL_DIR_CONFIG, ConfigDef.Type.STRING, PUSH_SPOOL_DIR_CONFIG_DEFAULT, ConfigDef.Importance.LOW, PUSH_SPOOL_DIR_CONFIG_DOC)
+            .define(PUSH_SPOOL_MAX_BYTES_CONFIG, ConfigDef.Type.LONG, PUSH_SPOOL_MAX_BYTES_CONFIG_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, PUSH_SPOOL_MAX_BYTES_CONFIG_DOC)
+            .define(PUSH_SPOOL_REPLAY_BATCHES_CONFIG, ConfigDef.Type.INT, PUSH_SPOOL_REPLAY_BATCHES_CONFIG_DEFAULT, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, PUSH_SPOOL_REPLAY_BATCHES_CONFIG_DOC);
 
     final Listener listener;
     final boolean listenerEnabled;
     final PrometheusRegistry registry;
-    final Pattern allowlist;
+    final MetricNameMatcher allowlist;
+    final MetricNameMatcher denylist;
+    final LabelFilter labelFilter;
+    final SeriesLimits seriesLimits;
+    final long scrapeCacheMs;
+    final long collectionIntervalMs;
+    final int collectionParallelism;
+    final boolean listenerCacheEnabled;
+    final ExpositionFormat listenerFormat;
+    final boolean listenerStreamingEnabled;
+    final boolean listenerVirtualThreadsEnabled;
+    final int listenerMaxInflightRequests;
+    final URI pushUrl;
 
     /**
      * Constructor.
@@ -80,10 +395,42 @@ public class ClientMetricsReporterConfig extends AbstractConfig {
      */
     @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
     public ClientMetricsReporterConfig(Map<?, ?> props, PrometheusRegistry registry) {
-        super(CONFIG_DEF, props);
+        this(CONFIG_DEF, props, registry);
+    }
+
+    /**
+     * Constructor for configurations extending the client configuration definition.
+     *
+     * @param definition the configuration definition.
+     * @param props the configuration properties.
+     * @param registry the metrics registry
+     */
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    ClientMetricsReporterConfig(ConfigDef definition, Map<?, ?> props, PrometheusRegistry registry) {
+        super(definition, props);
         this.listener = Listener.parseListener(getString(LISTENER_CONFIG));
         this.allowlist = compileAllowlist(getList(ALLOWLIST_CONFIG));
+        this.denylist = compileDenylist(getList(DENYLIST_CONFIG));
+        this.labelFilter = createLabelFilter();
+        this.seriesLimits = SeriesLimits.create(getInt(SERIES_LIMIT_CONFIG), getInt(SERIES_LIMIT_PER_FAMILY_CONFIG),
+                "overflow".equals(getString(SERIES_LIMIT_ACTION_CONFIG)));
         this.listenerEnabled = getBoolean(LISTENER_ENABLE_CONFIG);
+        this.scrapeCacheMs = getLong(SCRAPE_CACHE_MS_CONFIG);
+        this.collectionIntervalMs = getLong(COLLECTION_INTERVAL_MS_CONFIG);
+        this.collectionParallelism = getInt(COLLECTION_PARALLELISM_CONFIG);
+        this.listenerCacheEnabled = getBoolean(LISTENER_CACHE_ENABLE_CONFIG);
+        this.listenerFormat = ExpositionFormat.parse(getString(LISTENER_FORMAT_CONFIG));
+        this.listenerStreamingEnabled = getBoolean(LISTENER_STREAMING_ENABLE_CONFIG);
+        this.listenerVirtualThreadsEnabled = getBoolean(LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG);
+        // Virtual threads don't bound the number of concurrent scrapes, so they are limited unless the limit is set
+        this.listenerMaxInflightRequests = listenerVirtualThreadsEnabled && !originals().containsKey(LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG)
+                ? LISTENER_MAX_INFLIGHT_REQUESTS_VIRTUAL_THREADS_DEFAULT
+                : getInt(LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG);
+        this.pushUrl = parsePushUrl(getString(PUSH_URL_CONFIG));
+        if (listenerCacheEnabled && listenerCacheMs() == 0) {
+            LOG.warn("{} is enabled but neither {} nor {} is set, responses will be rendered on every scrape",
+                    LISTENER_CACHE_ENABLE_CONFIG, COLLECTION_INTERVAL_MS_CONFIG, SCRAPE_CACHE_MS_CONFIG);
+        }
         this.registry = registry;
     }
 
@@ -94,27 +441,81 @@ public class ClientMetricsReporterConfig extends AbstractConfig {
      * @return true if the metric is allowed, false otherwise.
      */
     public boolean isAllowed(String name) {
-        return allowlist.matcher(name).matches();
+        return allowlist.matches(name) && !denylist.matches(name);
     }
 
     /**
      * The configured allowlist.
-     * @return The Pattern for the allowlist
+     * @return The MetricNameMatcher for the allowlist
      */
-    public Pattern allowlist() {
+    public MetricNameMatcher allowlist() {
         return allowlist;
     }
 
-    Pattern compileAllowlist(List<String> allowlist) {
-        for (String entry : allowlist) {
+    /**
+     * The configured denylist.
+     * @return The MetricNameMatcher for the denylist
+     */
+    public MetricNameMatcher denylist() {
+        return denylist;
+    }
+
+    /**
+     * The label filter built from the labels configurations.
+     * @return The LabelFilter
+     */
+    public LabelFilter labelFilter() {
+        return labelFilter;
+    }
+
+    /**
+     * The series limits built from the series limit configurations.
+     * @return The SeriesLimits
+     */
+    public SeriesLimits seriesLimits() {
+        return seriesLimits;
+    }
+
+    private LabelFilter createLabelFilter() {
+        try {
+            return LabelFilter.create(getList(LABELS_DROP_CONFIG), getList(LABELS_KEEP_CONFIG), getList(ADDITIVE_GAUGES_CONFIG));
+        } catch (IllegalArgumentException iae) {
+            throw new ConfigException("Invalid label configuration: " + iae.getMessage());
+        }
+    }
+
+    private static URI parsePushUrl(String url) {
+        if (url.isEmpty()) {
+            return null;
+        }
+        try {
+            URI uri = new URI(url);
+            if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+                throw new ConfigException("Invalid URL in " + PUSH_URL_CONFIG + ", the scheme must be http or https: " + url);
+            }
+            return uri;
+        } catch (URISyntaxException use) {
+            throw new ConfigException("Invalid URL in " + PUSH_URL_CONFIG + ": " + url);
+        }
+    }
+
+    MetricNameMatcher compileAllowlist(List<String> allowlist) {
+        return compile(ALLOWLIST_CONFIG, allowlist);
+    }
+
+    MetricNameMatcher compileDenylist(List<String> denylist) {
+        return compile(DENYLIST_CONFIG, denylist);
+    }
+
+    private static MetricNameMatcher compile(String config, List<String> entries) {
+        for (String entry : entries) {
             try {
                 Pattern.compile(entry);
             } catch (PatternSyntaxException pse) {
-                throw new ConfigException("Invalid regex pattern found in " + ALLOWLIST_CONFIG + ": " + entry);
+                throw new ConfigException("Invalid regex pattern found in " + config + ": " + entry);
             }
         }
-        String joined = allowlist.stream().map(v -> "(" + v + ")").collect(Collectors.joining("|"));
-        return Pattern.compile(joined);
+        return MetricNameMatcher.compile(entries);
     }
 
     /**
@@ -135,12 +536,88 @@ public class ClientMetricsReporterConfig extends AbstractConfig {
         return listenerEnabled;
     }
 
+    /**
+     * The maximum age of collected metrics that can be served to scrapes.
+     *
+     * @return the maximum age in milliseconds, 0 if metrics are collected on every scrape.
+     */
+    public long scrapeCacheMs() {
+        return scrapeCacheMs;
+    }
+
+    /**
+     * The interval at which metrics are collected in the background.
+     *
+     * @return the interval in milliseconds, 0 if metrics are collected when they are scraped.
+     */
+    public long collectionIntervalMs() {
+        return collectionIntervalMs;
+    }
+
+    /**
+     * The number of threads collecting the Kafka metrics reporters.
+     *
+     * @return the number of threads, 1 if the reporters are collected sequentially.
+     */
+    public int collectionParallelism() {
+        return collectionParallelism;
+    }
+
+    /**
+     * How long the listener serves the rendered responses.
+     *
+     * @return the duration in milliseconds, 0 if responses are rendered on every scrape.
+     */
+    public long listenerCacheMs() {
+        if (!listenerCacheEnabled) {
+            return 0L;
+        }
+        return collectionIntervalMs > 0 ? collectionIntervalMs : scrapeCacheMs;
+    }
+
+    /**
+     * The options of the HTTP server started on the listener.
+     *
+     * @return the listener options.
+     */
+    public ListenerOptions listenerOptions() {
+        return new ListenerOptions(listenerCacheMs(), listenerStreamingEnabled, listenerVirtualThreadsEnabled, listenerMaxInflightRequests, listenerFormat);
+    }
+
+    /**
+     * The options of the pusher.
+     *
+     * @return the push options, or null if metrics are not pushed.
+     */
+    public PushOptions pushOptions() {
+        if (pushUrl == null) {
+            return null;
+        }
+        String spoolDir = getString(PUSH_SPOOL_DIR_CONFIG);
+        return new PushOptions(pushUrl, getLong(PUSH_INTERVAL_MS_CONFIG), getInt(PUSH_BATCH_SIZE_CONFIG), getLong(PUSH_RESEND_INTERVAL_MS_CONFIG),
+                spoolDir.isEmpty() ? null : Paths.get(spoolDir), getLong(PUSH_SPOOL_MAX_BYTES_CONFIG), getInt(PUSH_SPOOL_REPLAY_BATCHES_CONFIG));
+    }
+
     @Override
     public String toString() {
         return "ClientMetricsReporterConfig{" +
                 "listener=" + listener +
                 ", listenerEnabled=" + listenerEnabled +
                 ", allowlist=" + allowlist +
+                ", denylist=" + denylist +
+                ", labelsDrop=" + getList(LABELS_DROP_CONFIG) +
+                ", labelsKeep=" + getList(LABELS_KEEP_CONFIG) +
+                ", additiveGauges=" + getList(ADDITIVE_GAUGES_CONFIG) +
+                ", seriesLimits=" + seriesLimits +
+                ", scrapeCacheMs=" + scrapeCacheMs +
+                ", collectionIntervalMs=" + collectionIntervalMs +
+                ", collectionParallelism=" + collectionParallelism +
+                ", listenerCacheEnabled=" + listenerCacheEnabled +
+                ", listenerFormat=" + listenerFormat +
+                ", listenerStreamingEnabled=" + listenerStreamingEnabled +
+                ", listenerVirtualThreadsEnabled=" + listenerVirtualThreadsEnabled +
+                ", listenerMaxInflightRequests=" + listenerMaxInflightRequests +
+                ", pushOptions=" + pushOptions() +
                 '}';
     }
 
@@ -154,8 +631,23 @@ public class ClientMetricsReporterConfig extends AbstractConfig {
             LOG.info("HTTP server listener not enabled");
             return Optional.empty();
         }
-        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry);
+        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, listenerOptions());
         LOG.info("HTTP server listening on http://{}:{}", listener.host, server.port());
         return Optional.of(server);
     }
+
+    /**
+     * Start pushing metrics.
+     *
+     * @return An optional PusherCounter instance if {@link #PUSH_URL_CONFIG} is set, otherwise empty.
+     */
+    public synchronized Optional<Pushers.PusherCounter> startPusher() {
+        PushOptions options = pushOptions();
+        if (options == null) {
+            return Optional.empty();
+        }
+        Pushers.PusherCounter pusher = Pushers.getOrCreate(registry, options);
+        LOG.info("Pushing metrics to {} every {}ms", options.url, options.intervalMs);
+        return Optional.of(pusher);
+    }
 }
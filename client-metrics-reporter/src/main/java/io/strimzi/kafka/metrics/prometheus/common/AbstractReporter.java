@@ -7,11 +7,15 @@ package io.strimzi.kafka.metrics.prometheus.common;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Common reporter logic to track metrics that match an allowlist pattern. This filters the metrics as they are added
@@ -20,12 +24,23 @@ import java.util.regex.Pattern;
 public abstract class AbstractReporter {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractReporter.class);
+    private static final MetricNameMatcher NO_METRICS = MetricNameMatcher.compile(List.of());
 
-    // Metrics that match the allowlist
-    private final Map<Object, MetricWrapper> allowedMetrics = new ConcurrentHashMap<>();
-    // Metrics that don't match the allowlist. This is only used by reporters that are reconfigurable so if the
-    // allowlist is updated we can update the matching metrics.
-    private final Map<Object, MetricWrapper> disallowedMetrics = new ConcurrentHashMap<>();
+    // Metrics that match the allowlist grouped by Prometheus name. The metrics of a family are only updated while
+    // holding the family.
+    private final Map<String, MetricFamily> allowedFamilies = new ConcurrentHashMap<>();
+    // Metrics that don't match the allowlist grouped by Prometheus name. This is only used by reporters that are
+    // reconfigurable so if the allowlist is updated we can update the matching families. Metrics added without a
+    // wrapper are kept as is, their wrapper is only built if they are allowed later. The metrics of a family are only
+    // updated while holding the family.
+    private final Map<String, Map<Object, Object>> disallowedFamilies = new ConcurrentHashMap<>();
+    // Number of allowed metrics of this reporter that are not folded into an overflow series, the series limits apply
+    // to each reporter on its own
+    private final AtomicInteger reporterSeriesWithinLimits = new AtomicInteger();
+    // Number of metrics that exceeded the series limits
+    private final AtomicLong rejectedSeries = new AtomicLong();
+    // Index shared with other reporters the families are added to, null if the reporter is not attached to an index
+    private volatile FamilyIndex familyIndex;
 
     /**
      * Empty constructor
@@ -34,9 +49,33 @@ public abstract class AbstractReporter {
 
     /**
      * The current allowlist
-     * @return A {@link Pattern} representing the allowlist
+     * @return A {@link MetricNameMatcher} representing the allowlist
      */
-    protected abstract Pattern allowlist();
+    protected abstract MetricNameMatcher allowlist();
+
+    /**
+     * The current denylist. Metrics matching the denylist are not collected even if they match the allowlist.
+     * @return A {@link MetricNameMatcher} representing the denylist
+     */
+    protected MetricNameMatcher denylist() {
+        return NO_METRICS;
+    }
+
+    /**
+     * The label filter applied to the metrics of this reporter.
+     * @return The {@link LabelFilter}
+     */
+    protected LabelFilter labelFilter() {
+        return LabelFilter.NONE;
+    }
+
+    /**
+     * The limits on the number of series exported by this reporter.
+     * @return The {@link SeriesLimits}
+     */
+    protected SeriesLimits seriesLimits() {
+        return SeriesLimits.NONE;
+    }
 
     /**
      * Whether the reporter is reconfigurable.
@@ -46,65 +85,286 @@ public abstract class AbstractReporter {
         return false;
     }
 
+    /**
+     * Build the wrapper of a metric added with {@link #addMetric(Object, String, Object)}. This is only called once
+     * the metric is allowed.
+     * @param name The name of the metric
+     * @param prometheusName The Prometheus name of the metric
+     * @param metric The metric
+     * @return The wrapper of the metric
+     */
+    protected abstract MetricWrapper metricWrapper(Object name, String prometheusName, Object metric);
+
     private boolean matches(String name) {
-        return allowlist().matcher(name).matches();
+        return allowlist().matches(name) && !denylist().matches(name);
     }
 
     /**
-     * Add a metric to be collected.
+     * Add a metric to be collected. A metric added again with the same name replaces the previous one, it must keep
+     * the same Prometheus name.
      * @param name The name of the metric to add.
      * @param metric The metric to add.
      */
     public void addMetric(Object name, MetricWrapper metric) {
         if (matches(metric.prometheusName())) {
-            allowedMetrics.put(name, metric);
+            allow(name, metric);
         } else {
-            LOG.trace("Ignoring metric {} as it does not match the allowlist", metric.prometheusName());
+            LOG.trace("Ignoring metric {} as it does not match the allowlist or matches the denylist", metric.prometheusName());
             if (isReconfigurable()) {
-                disallowedMetrics.put(name, metric);
+                addDisallowed(metric.prometheusName(), name, metric);
             }
         }
     }
 
     /**
-     * Remove a metric from collection.
+     * Add a metric to be collected. Unlike {@link #addMetric(Object, MetricWrapper)}, the wrapper, with the labels of
+     * the metric, is only built by {@link #metricWrapper(Object, String, Object)} if the metric is allowed. Reconfigurable
+     * reporters only keep the name and the metric of the disallowed metrics.
+     * @param name The name of the metric to add.
+     * @param prometheusName The Prometheus name of the metric to add.
+     * @param metric The metric to add.
+     */
+    public void addMetric(Object name, String prometheusName, Object metric) {
+        if (matches(prometheusName)) {
+            allow(name, metricWrapper(name, prometheusName, metric));
+        } else {
+            LOG.trace("Ignoring metric {} as it does not match the allowlist or matches the denylist", prometheusName);
+            if (isReconfigurable()) {
+                addDisallowed(prometheusName, name, metric);
+            }
+        }
+    }
+
+    /**
+     * Remove a metric from collection. For reconfigurable reporters, prefer {@link #removeMetric(Object, String)}
+     * which does not have to look for the metric in all the disallowed families.
      * @param name The name of metric to remove.
      */
     public void removeMetric(Object name) {
-        allowedMetrics.remove(name);
+        for (String prometheusName : allowedFamilies.keySet()) {
+            if (disallow(name, prometheusName)) {
+                return;
+            }
+        }
         if (isReconfigurable()) {
-            disallowedMetrics.remove(name);
+            for (String prometheusName : disallowedFamilies.keySet()) {
+                removeDisallowed(prometheusName, name);
+            }
         }
     }
 
+    /**
+     * Remove a metric from collection.
+     * @param name The name of metric to remove.
+     * @param prometheusName The Prometheus name of the metric to remove.
+     */
+    public void removeMetric(Object name, String prometheusName) {
+        if (!disallow(name, prometheusName) && isReconfigurable()) {
+            removeDisallowed(prometheusName, name);
+        }
+    }
+
+    private void addDisallowed(String prometheusName, Object key, Object metric) {
+        disallowedFamilies.compute(prometheusName, (name, family) -> {
+            Map<Object, Object> f = family != null ? family : new HashMap<>();
+            f.put(key, metric);
+            return f;
+        });
+    }
+
+    private void removeDisallowed(String prometheusName, Object key) {
+        disallowedFamilies.computeIfPresent(prometheusName, (name, family) -> {
+            family.remove(key);
+            return family.isEmpty() ? null : family;
+        });
+    }
+
     /**
      * Retrieve the allowed metrics.
      * @return A collection of MetricWrapper
      */
     public Collection<MetricWrapper> allowedMetrics() {
-        return allowedMetrics.values();
+        List<MetricWrapper> metrics = new ArrayList<>();
+        for (MetricFamily family : allowedFamilies.values()) {
+            metrics.addAll(family.metrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Retrieve the allowed metrics grouped by Prometheus name.
+     * @return A collection of MetricFamily
+     */
+    public Collection<MetricFamily> allowedFamilies() {
+        return allowedFamilies.values();
+    }
+
+    /**
+     * Whether the number of series exported by this reporter is limited.
+     * @return true if series limits are set, otherwise false
+     */
+    public boolean hasSeriesLimits() {
+        return seriesLimits().isEnabled();
+    }
+
+    /**
+     * Retrieve the number of metrics that exceeded the series limits, either dropped or folded into an overflow series.
+     * @return The number of rejected series
+     */
+    public long rejectedSeries() {
+        return rejectedSeries.get();
+    }
+
+    private void allow(Object key, MetricWrapper metric) {
+        MetricFamily existing = allowedFamilies.get(metric.prometheusName());
+        MetricFamily family = allowedFamilies.compute(metric.prometheusName(), (name, f) -> {
+            MetricFamily result = f != null ? f : newFamily(name);
+            MetricWrapper limited = applySeriesLimits(result, key, metric);
+            if (limited != null && result.add(key, limited) == null && !(limited instanceof OverflowMetricWrapper)) {
+                reporterSeriesWithinLimits.incrementAndGet();
+            }
+            return result.isEmpty() ? null : result;
+        });
+        if (family != null && family != existing) {
+            index(family);
+        }
+    }
+
+    private MetricFamily newFamily(String name) {
+        LabelFilter filter = labelFilter();
+        return new MetricFamily(name, filter.isAdditive(name), !filter.forMetric(name).keepsAll());
     }
 
     /**
-     * Update the allowed metrics based on the current allowlist pattern.
+     * Add a new family to the index. The index is read again once the family is added, if the reporter was detached
+     * in the meantime the family is removed so it is not left behind.
      */
-    public void updateAllowedMetrics() {
+    private void index(MetricFamily family) {
+        FamilyIndex index = familyIndex;
+        if (index != null) {
+            index.add(family);
+            if (familyIndex != index) {
+                index.remove(family);
+            }
+        }
+    }
+
+    synchronized void attach(FamilyIndex index) {
+        familyIndex = index;
+        for (MetricFamily family : allowedFamilies.values()) {
+            index.add(family);
+        }
+    }
+
+    synchronized void detach(FamilyIndex index) {
+        if (familyIndex == index) {
+            familyIndex = null;
+        }
+        for (MetricFamily family : allowedFamilies.values()) {
+            index.remove(family);
+        }
+    }
+
+    /**
+     * Check a new metric against the series limits. Metrics that are already allowed keep their series. This is called
+     * while holding the family.
+     * @return The metric to add, folded into the overflow series if it exceeds the limits, or null if it is dropped
+     */
+    private MetricWrapper applySeriesLimits(MetricFamily family, Object key, MetricWrapper metric) {
+        MetricWrapper previous = family.get(key);
+        if (previous != null) {
+            return previous instanceof OverflowMetricWrapper ? new OverflowMetricWrapper(metric) : metric;
+        }
+        SeriesLimits limits = seriesLimits();
+        if (!limits.isEnabled()) {
+            return metric;
+        }
+        if (!limits.isExceeded(reporterSeriesWithinLimits.get(), family.sizeWithinLimits())) {
+            return metric;
+        }
+        if (rejectedSeries.getAndIncrement() == 0) {
+            LOG.warn("Series limits {} reached, metrics exceeding them are {}", limits, limits.overflow() ? "folded into overflow series" : "dropped");
+        }
+        if (limits.overflow()) {
+            return new OverflowMetricWrapper(metric);
+        }
+        LOG.debug("Dropping metric {} with labels {} as it exceeds the series limits", metric.prometheusName(), metric.labels());
+        return null;
+    }
+
+    private boolean disallow(Object key, String prometheusName) {
+        MetricFamily family = allowedFamilies.get(prometheusName);
+        if (family == null) {
+            return false;
+        }
+        AtomicBoolean removed = new AtomicBoolean();
+        MetricFamily remaining = allowedFamilies.computeIfPresent(prometheusName, (n, f) -> {
+            MetricWrapper previous = f.remove(key);
+            if (previous != null) {
+                removed.set(true);
+                if (!(previous instanceof OverflowMetricWrapper)) {
+                    reporterSeriesWithinLimits.decrementAndGet();
+                }
+            }
+            return f.isEmpty() ? null : f;
+        });
+        FamilyIndex index = familyIndex;
+        if (remaining == null && index != null) {
+            index.remove(family);
+        }
+        return removed.get();
+    }
+
+    /**
+     * Update the allowed metrics based on the current allowlist pattern. The allowlist is only evaluated once per
+     * family, and whole families are moved between the allowed and disallowed metrics.
+     */
+    public synchronized void updateAllowedMetrics() {
         if (!isReconfigurable()) return;
-        Map<Object, MetricWrapper> newAllowedMetrics = new HashMap<>();
-        for (Map.Entry<Object, MetricWrapper> entry : disallowedMetrics.entrySet()) {
-            String name = entry.getValue().prometheusName();
+        List<String> newAllowedFamilies = new ArrayList<>();
+        for (String name : disallowedFamilies.keySet()) {
             if (matches(name)) {
-                newAllowedMetrics.put(entry.getKey(), entry.getValue());
-                disallowedMetrics.remove(entry.getKey());
+                newAllowedFamilies.add(name);
             }
         }
-        for (Map.Entry<Object, MetricWrapper> entry : allowedMetrics.entrySet()) {
-            String name = entry.getValue().prometheusName();
+        // Families are moved while holding them so concurrent removals find the metrics in either map
+        for (String name : allowedFamilies.keySet()) {
             if (!matches(name)) {
-                disallowedMetrics.put(entry.getKey(), entry.getValue());
-                allowedMetrics.remove(entry.getKey());
+                allowedFamilies.computeIfPresent(name, (n, family) -> {
+                    disallowFamily(family);
+                    return null;
+                });
+            }
+        }
+        for (String name : newAllowedFamilies) {
+            disallowedFamilies.computeIfPresent(name, (n, family) -> {
+                family.forEach((key, metric) ->
+                        allow(key, metric instanceof MetricWrapper ? (MetricWrapper) metric : metricWrapper(key, name, metric)));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Move the metrics of a family removed from the allowed families to the disallowed families
+     */
+    private void disallowFamily(MetricFamily family) {
+        FamilyIndex index = familyIndex;
+        if (index != null) {
+            index.remove(family);
+        }
+        Map<Object, Object> disallowed = new HashMap<>();
+        family.forEach((key, metric) -> {
+            if (!(metric instanceof OverflowMetricWrapper)) {
+                reporterSeriesWithinLimits.decrementAndGet();
             }
+            disallowed.put(key, metric);
+        });
+        if (!disallowed.isEmpty()) {
+            disallowedFamilies.merge(family.name(), disallowed, (current, added) -> {
+                current.putAll(added);
+                return current;
+            });
         }
-        allowedMetrics.putAll(newAllowedMetrics);
     }
 }
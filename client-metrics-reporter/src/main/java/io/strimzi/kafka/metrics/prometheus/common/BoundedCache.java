@@ -0,0 +1,87 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent cache with a maximum number of entries, used to memoize values derived from metric names.
+ * Once the cache holds more than its maximum, an arbitrary eighth of the entries is evicted so it stays bounded
+ * without recomputing all the values at once like clearing it would.
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class BoundedCache<K, V> {
+
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final int evictedSize;
+
+    /**
+     * Constructor
+     * @param maxSize The maximum number of entries
+     */
+    public BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.evictedSize = Math.max(1, maxSize / 8);
+    }
+
+    /**
+     * Retrieve a value
+     * @param key The key
+     * @return The cached value, or null if the key is not cached
+     */
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Cache a value unless the key already has one
+     * @param key The key
+     * @param value The value
+     * @return The value cached for the key, either the previous one or the given value
+     */
+    public V putIfAbsent(K key, V value) {
+        V previous = entries.putIfAbsent(key, value);
+        if (previous != null) {
+            return previous;
+        }
+        if (entries.size() > maxSize) {
+            evict();
+        }
+        return value;
+    }
+
+    /**
+     * The number of cached entries
+     * @return The number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all the entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private synchronized void evict() {
+        // Concurrent puts may have already triggered an eviction
+        int toEvict = entries.size() - maxSize + evictedSize;
+        if (toEvict <= evictedSize) {
+            return;
+        }
+        Iterator<K> keys = entries.keySet().iterator();
+        while (toEvict > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            toEvict--;
+        }
+    }
+}
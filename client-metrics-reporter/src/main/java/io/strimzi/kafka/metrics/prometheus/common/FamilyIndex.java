@@ -0,0 +1,68 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The metric families of several reporters grouped by Prometheus name. Reporters attached to the index add and remove
+ * their families as metrics are added and removed, so collectors walk each name once on every scrape instead of
+ * grouping the families of all the reporters by name.
+ * Families are only added and removed when the first metric with a name is added or the last one removed, which is
+ * rare compared to scrapes, so each name holds a copy-on-write list that scrapes read without locking.
+ */
+public class FamilyIndex {
+
+    private final Map<String, List<MetricFamily>> families = new ConcurrentHashMap<>();
+
+    /**
+     * The families grouped by Prometheus name
+     * @return A collection of lists of MetricFamily, each list contains the families of the reporters with the same name
+     */
+    public Collection<List<MetricFamily>> families() {
+        return families.values();
+    }
+
+    /**
+     * Attach a reporter so it keeps its families in this index
+     * @param reporter The reporter to attach
+     */
+    public void attach(AbstractReporter reporter) {
+        reporter.attach(this);
+    }
+
+    /**
+     * Detach a reporter and remove its families from this index
+     * @param reporter The reporter to detach
+     */
+    public void detach(AbstractReporter reporter) {
+        reporter.detach(this);
+    }
+
+    void add(MetricFamily family) {
+        families.compute(family.name(), (name, list) -> {
+            List<MetricFamily> l = list != null ? list : new CopyOnWriteArrayList<>();
+            if (!l.contains(family)) {
+                l.add(family);
+            }
+            return l;
+        });
+    }
+
+    /**
+     * Remove a family, for example a family left empty by a concurrent removal of its last metric
+     * @param family The family to remove
+     */
+    public void remove(MetricFamily family) {
+        families.computeIfPresent(family.name(), (name, list) -> {
+            list.remove(family);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
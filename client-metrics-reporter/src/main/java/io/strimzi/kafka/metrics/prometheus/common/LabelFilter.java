@@ -0,0 +1,154 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the labels to keep for each metric. Rules are entries in the {@code <metric regex>=<label>;<label>} format.
+ * For a metric matching drop rules, the listed labels are removed. For a metric matching keep rules, only the listed
+ * labels are kept. Series that end up with the same labels are collapsed by the collectors, their values are summed
+ * for counters and for the gauges matching the additive patterns.
+ */
+public class LabelFilter {
+
+    /**
+     * Filter that keeps all the labels
+     */
+    public static final LabelFilter NONE = new LabelFilter(List.of(), List.of(), MetricNameMatcher.compile(List.of()));
+
+    private static final int MAX_CACHED_RULES = 10_000;
+
+    private final List<Entry> drop;
+    private final List<Entry> keep;
+    private final MetricNameMatcher additive;
+    private final BoundedCache<String, Rule> rules = new BoundedCache<>(MAX_CACHED_RULES);
+
+    private LabelFilter(List<Entry> drop, List<Entry> keep, MetricNameMatcher additive) {
+        this.drop = drop;
+        this.keep = keep;
+        this.additive = additive;
+    }
+
+    /**
+     * Create a label filter
+     * @param drop The drop rules
+     * @param keep The keep rules
+     * @param additive The regex patterns of the gauges that can be summed
+     * @return The label filter
+     * @throws IllegalArgumentException if a rule is not in the {@code <metric regex>=<label>;<label>} format or
+     *                                  contains an invalid regex
+     */
+    public static LabelFilter create(List<String> drop, List<String> keep, List<String> additive) {
+        if (drop.isEmpty() && keep.isEmpty() && additive.isEmpty()) {
+            return NONE;
+        }
+        return new LabelFilter(parse(drop), parse(keep), MetricNameMatcher.compile(additive));
+    }
+
+    private static List<Entry> parse(List<String> rules) {
+        List<Entry> entries = new ArrayList<>();
+        for (String rule : rules) {
+            int index = rule.lastIndexOf('=');
+            if (index <= 0) {
+                throw new IllegalArgumentException("Invalid label rule " + rule + ", the format is <metric regex>=<label>;<label>");
+            }
+            Pattern pattern = Pattern.compile(rule.substring(0, index));
+            Set<String> labels = new HashSet<>(Arrays.asList(rule.substring(index + 1).split(";")));
+            labels.remove("");
+            entries.add(new Entry(pattern, labels));
+        }
+        return entries;
+    }
+
+    /**
+     * Retrieve the rule for a metric
+     * @param metricName The Prometheus name of the metric
+     * @return The rule selecting the labels to keep for this metric
+     */
+    public Rule forMetric(String metricName) {
+        if (drop.isEmpty() && keep.isEmpty()) {
+            return Rule.KEEP_ALL;
+        }
+        Rule rule = rules.get(metricName);
+        if (rule == null) {
+            rule = rules.putIfAbsent(metricName, new Rule(matchingLabels(drop, metricName), matchingLabels(keep, metricName)));
+        }
+        return rule;
+    }
+
+    /**
+     * Whether the values of a gauge can be summed when its series are collapsed
+     * @param metricName The Prometheus name of the metric
+     * @return true if the gauge is additive, otherwise false
+     */
+    public boolean isAdditive(String metricName) {
+        return additive.matches(metricName);
+    }
+
+    private static Set<String> matchingLabels(List<Entry> entries, String metricName) {
+        Set<String> labels = null;
+        for (Entry entry : entries) {
+            if (entry.pattern.matcher(metricName).matches()) {
+                if (labels == null) {
+                    labels = new HashSet<>();
+                }
+                labels.addAll(entry.labels);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Selects the labels to keep for a metric
+     */
+    public static class Rule {
+
+        /**
+         * Rule that keeps all the labels
+         */
+        public static final Rule KEEP_ALL = new Rule(null, null);
+
+        private final Set<String> dropped;
+        private final Set<String> kept;
+
+        private Rule(Set<String> dropped, Set<String> kept) {
+            this.dropped = dropped;
+            this.kept = kept;
+        }
+
+        /**
+         * Check whether a label is kept
+         * @param labelName The Prometheus name of the label
+         * @return true if the label is kept, otherwise false
+         */
+        public boolean keeps(String labelName) {
+            return (kept == null || kept.contains(labelName)) && (dropped == null || !dropped.contains(labelName));
+        }
+
+        /**
+         * Check whether all the labels are kept
+         * @return true if no drop or keep rule applies, otherwise false
+         */
+        public boolean keepsAll() {
+            return kept == null && dropped == null;
+        }
+    }
+
+    private static class Entry {
+        private final Pattern pattern;
+        private final Set<String> labels;
+
+        private Entry(Pattern pattern, Set<String> labels) {
+            this.pattern = pattern;
+            this.labels = labels;
+        }
+    }
+}
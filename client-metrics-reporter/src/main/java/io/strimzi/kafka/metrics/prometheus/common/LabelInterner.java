@@ -0,0 +1,62 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import io.prometheus.metrics.model.snapshots.PrometheusNaming;
+
+
+/**
+ * Pools of the label names and values shared by the metric wrappers. Metrics of the same client, topic or partition
+ * have the same label values, and all metrics share a few label names, so wrappers reuse a single instance of each
+ * string instead of keeping their own copy from the tags or scope they are built from.
+ * The pools are bounded, once full some strings are evicted to make room for the next metrics.
+ */
+public class LabelInterner {
+
+    /* test */ static final int MAX_NAMES = 10_000;
+    /* test */ static final int MAX_VALUES = 100_000;
+
+    // Sanitized label names by raw name
+    private static final BoundedCache<String, String> NAMES = new BoundedCache<>(MAX_NAMES);
+    // Label values, and sanitized label names, by themselves
+    private static final BoundedCache<String, String> VALUES = new BoundedCache<>(MAX_VALUES);
+
+    private LabelInterner() { }
+
+    /**
+     * Sanitize a label name
+     * @param name The raw label name
+     * @return The shared instance of the sanitized label name
+     */
+    public static String labelName(String name) {
+        String labelName = NAMES.get(name);
+        if (labelName == null) {
+            labelName = NAMES.putIfAbsent(name, intern(PrometheusNaming.sanitizeLabelName(name)));
+        }
+        return labelName;
+    }
+
+    /**
+     * Retrieve the shared instance of a label value
+     * @param value The label value
+     * @return The shared instance equal to the value
+     */
+    public static String labelValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        return intern(value);
+    }
+
+    /* test */ static void clear() {
+        NAMES.clear();
+        VALUES.clear();
+    }
+
+    private static String intern(String value) {
+        String interned = VALUES.get(value);
+        return interned != null ? interned : VALUES.putIfAbsent(value, value);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import io.prometheus.metrics.model.snapshots.Labels;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * The allowed metrics of a reporter that share the same Prometheus name. The name and help text are computed once when
+ * the family is created so collectors don't have to rebuild them on every scrape.
+ * When labels are dropped, several metrics of a family can have the same labels, and so do the metrics folded into the
+ * overflow series. The family tracks these collisions so collectors only group the metrics by labels for the families
+ * that need it. The labels of each metric are only counted for the families with label rules.
+ */
+public class MetricFamily {
+
+    private final String name;
+    private final String help;
+    private final boolean additive;
+    private final SeriesTable metrics = new SeriesTable();
+    // Number of metrics per labels, only updated by the reporter while holding the family. Null if no label is dropped.
+    private final Map<Labels, Integer> seriesCounts;
+    private final AtomicInteger collisions = new AtomicInteger();
+    private final AtomicInteger overflowed = new AtomicInteger();
+
+    MetricFamily(String name, boolean additive, boolean filtered) {
+        this.name = name;
+        this.help = "Use " + name + " in allowlist";
+        this.additive = additive;
+        this.seriesCounts = filtered ? new HashMap<>() : null;
+    }
+
+    /**
+     * The Prometheus name of the metrics in this family
+     * @return The Prometheus name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * The help text of this family
+     * @return The help text
+     */
+    public String help() {
+        return help;
+    }
+
+    /**
+     * The metrics in this family
+     * @return A collection of MetricWrapper
+     */
+    public Collection<MetricWrapper> metrics() {
+        return metrics.metrics();
+    }
+
+    /**
+     * The number of metrics in this family
+     * @return The number of metrics
+     */
+    public int size() {
+        return metrics.size();
+    }
+
+    /**
+     * The number of metrics in this family that are within the series limits of the reporter
+     * @return The number of metrics not folded into the overflow series
+     */
+    public int sizeWithinLimits() {
+        return metrics.size() - overflowed.get();
+    }
+
+    /**
+     * Whether the values of the gauges in this family can be summed when several metrics have the same labels
+     * @return true if the gauges are additive, otherwise false
+     */
+    public boolean isAdditive() {
+        return additive;
+    }
+
+    /**
+     * Whether several metrics in this family have the same labels
+     * @return true if some metrics have to be collapsed into a single series, otherwise false
+     */
+    public boolean hasCollisions() {
+        return collisions.get() > 0 || overflowed.get() > 1;
+    }
+
+    /**
+     * Whether metrics of this family can have the same labels as metrics of the families with the same name of other
+     * reporters, because this family drops labels or folds metrics into the overflow series
+     * @return true if the family has to be collapsed with the families with the same name, otherwise false
+     */
+    public boolean mayShareLabels() {
+        return seriesCounts != null || overflowed.get() > 0;
+    }
+
+    /**
+     * The metrics in this family grouped by labels
+     * @return A collection of lists of MetricWrapper, each list contains the metrics with the same labels
+     */
+    public Collection<List<MetricWrapper>> series() {
+        return series(List.of(this));
+    }
+
+    /**
+     * The metrics of families with the same name grouped by labels
+     * @param families The families with the same name, for example from different reporters
+     * @return A collection of lists of MetricWrapper, each list contains the metrics with the same labels
+     */
+    public static Collection<List<MetricWrapper>> series(Collection<MetricFamily> families) {
+        Map<Labels, List<MetricWrapper>> series = new LinkedHashMap<>();
+        for (MetricFamily family : families) {
+            for (MetricWrapper metric : family.metrics.metrics()) {
+                series.computeIfAbsent(metric.labels(), l -> new ArrayList<>(1)).add(metric);
+            }
+        }
+        return series.values();
+    }
+
+    /**
+     * Iterate the metrics of a family, only once it's no longer updated by the reporter
+     */
+    void forEach(BiConsumer<Object, MetricWrapper> action) {
+        metrics.forEach(action);
+    }
+
+    /**
+     * Retrieve a metric, only while the family is held by the reporter
+     */
+    MetricWrapper get(Object key) {
+        return metrics.get(key);
+    }
+
+    MetricWrapper add(Object key, MetricWrapper metric) {
+        MetricWrapper previous = metrics.put(key, metric);
+        if (previous != null) {
+            decrement(previous);
+        }
+        if (metric instanceof OverflowMetricWrapper) {
+            overflowed.incrementAndGet();
+        } else if (seriesCounts != null && seriesCounts.merge(metric.labels(), 1, Integer::sum) > 1) {
+            collisions.incrementAndGet();
+        }
+        return previous;
+    }
+
+    MetricWrapper remove(Object key) {
+        MetricWrapper previous = metrics.remove(key);
+        if (previous != null) {
+            decrement(previous);
+        }
+        return previous;
+    }
+
+    private void decrement(MetricWrapper previous) {
+        if (previous instanceof OverflowMetricWrapper) {
+            overflowed.decrementAndGet();
+            return;
+        }
+        if (seriesCounts == null) {
+            return;
+        }
+        Labels labels = previous.labels();
+        Integer count = seriesCounts.get(labels);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            collisions.decrementAndGet();
+            seriesCounts.put(labels, count - 1);
+        } else {
+            seriesCounts.remove(labels);
+        }
+    }
+
+    boolean isEmpty() {
+        return metrics.size() == 0;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Matches Prometheus metric names against a list of regular expressions, like the allowlist.
+ * Most entries are either literal names or prefixes like {@code kafka_server_.*} so these are matched with hash and
+ * trie lookups and only the other entries are evaluated as regular expressions. Decisions are memoized per name.
+ */
+public class MetricNameMatcher {
+
+    // Characters that can appear in Prometheus metric names and have no special meaning in regular expressions
+    private static final Pattern LITERAL = Pattern.compile("[a-zA-Z0-9_:]+");
+    private static final Pattern PREFIX = Pattern.compile("([a-zA-Z0-9_:]*)\\.\\*");
+    private static final int MAX_CACHED_DECISIONS = 10_000;
+
+    private final String pattern;
+    private final Set<String> literals = new HashSet<>();
+    private final PrefixNode prefixes = new PrefixNode();
+    private final Pattern regex;
+    private final BoundedCache<String, Boolean> decisions = new BoundedCache<>(MAX_CACHED_DECISIONS);
+
+    private MetricNameMatcher(List<String> allEntries) {
+        // Blank entries, for example from a trailing comma, don't match anything
+        List<String> entries = allEntries.stream().filter(e -> !e.isBlank()).collect(Collectors.toList());
+        this.pattern = entries.stream().map(v -> "(" + v + ")").collect(Collectors.joining("|"));
+        List<String> regexEntries = new ArrayList<>();
+        for (String entry : entries) {
+            Matcher prefix = PREFIX.matcher(entry);
+            if (LITERAL.matcher(entry).matches()) {
+                literals.add(entry);
+            } else if (prefix.matches()) {
+                prefixes.add(prefix.group(1));
+            } else {
+                regexEntries.add(entry);
+            }
+        }
+        this.regex = regexEntries.isEmpty()
+                ? null
+                : Pattern.compile(regexEntries.stream().map(v -> "(" + v + ")").collect(Collectors.joining("|")));
+    }
+
+    /**
+     * Create a matcher for a list of regular expressions
+     * @param entries The regular expressions, a name matches if it matches any of them
+     * @return The matcher
+     * @throws java.util.regex.PatternSyntaxException if an entry is not a valid regular expression
+     */
+    public static MetricNameMatcher compile(List<String> entries) {
+        return new MetricNameMatcher(entries);
+    }
+
+    /**
+     * Check whether a name matches
+     * @param name The metric name
+     * @return true if the name matches one of the entries, otherwise false
+     */
+    public boolean matches(String name) {
+        Boolean decision = decisions.get(name);
+        if (decision == null) {
+            decision = decisions.putIfAbsent(name, evaluate(name));
+        }
+        return decision;
+    }
+
+    private boolean evaluate(String name) {
+        return literals.contains(name)
+                || prefixes.matchesPrefixOf(name)
+                || regex != null && regex.matcher(name).matches();
+    }
+
+    /**
+     * The regular expression equivalent to this matcher
+     * @return The joined regular expression
+     */
+    public String pattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Node of a trie of prefixes
+     */
+    private static class PrefixNode {
+        private final Map<Character, PrefixNode> children = new HashMap<>();
+        private boolean terminal;
+
+        private void add(String prefix) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixNode());
+            }
+            node.terminal = true;
+        }
+
+        private boolean matchesPrefixOf(String name) {
+            PrefixNode node = this;
+            for (int i = 0; i < name.length() && !node.terminal; i++) {
+                node = node.children.get(name.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return node.terminal;
+        }
+    }
+}
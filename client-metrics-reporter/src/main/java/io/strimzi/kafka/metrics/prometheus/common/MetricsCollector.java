@@ -7,6 +7,7 @@ package io.strimzi.kafka.metrics.prometheus.common;
 import io.prometheus.metrics.model.snapshots.MetricSnapshot;
 
 import java.util.List;
+import java.util.OptionalLong;
 
 /**
  * Interface for both Kafka and Yammer collectors
@@ -19,4 +20,13 @@ public interface MetricsCollector {
      * @return the list of metrics of this collector
      */
     List<MetricSnapshot> collect();
+
+    /**
+     * The number of series rejected by the series limits of the reporters of this collector
+     *
+     * @return the number of rejected series, or empty if none of the reporters have series limits
+     */
+    default OptionalLong rejectedSeries() {
+        return OptionalLong.empty();
+    }
 }
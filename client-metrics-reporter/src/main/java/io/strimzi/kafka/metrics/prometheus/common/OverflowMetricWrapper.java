@@ -0,0 +1,20 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import io.prometheus.metrics.model.snapshots.Labels;
+
+/**
+ * Wrapper for a metric that exceeded the series limits. All the overflowed metrics of a family share the same labels
+ * so the collectors collapse them into a single series.
+ */
+class OverflowMetricWrapper extends MetricWrapper {
+
+    static final Labels OVERFLOW_LABELS = Labels.of("overflow", "true");
+
+    OverflowMetricWrapper(MetricWrapper metric) {
+        super(metric.prometheusName(), OVERFLOW_LABELS, metric.metric(), metric.attribute());
+    }
+}
@@ -7,23 +7,44 @@ package io.strimzi.kafka.metrics.prometheus.common;
 import io.prometheus.metrics.instrumentation.jvm.JvmMetrics;
 import io.prometheus.metrics.model.registry.MultiCollector;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.CounterSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.MetricSnapshot;
 import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Prometheus Collector to store and export metrics from {@link MetricsCollector} implementations.
  */
 public class PrometheusCollector implements MultiCollector {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PrometheusCollector.class);
     private static final AtomicBoolean REGISTERED = new AtomicBoolean(false);
     private static final PrometheusCollector INSTANCE = new PrometheusCollector();
+    private static final String REJECTED_SERIES_NAME = "strimzi_metrics_reporter_rejected_series";
+    private static final String REJECTED_SERIES_HELP = "Number of metrics that exceeded the series limits and were dropped or folded into overflow series";
 
     // At runtime this should contain at most one instance of KafkaCollector and one instance of YammerCollector
-    private final List<MetricsCollector> collectors = new ArrayList<>();
+    private final List<MetricsCollector> collectors = new CopyOnWriteArrayList<>();
+    // Latest metrics collected in the background, only used when a collection interval is set
+    private final AtomicReference<MetricSnapshots> publishedSnapshots = new AtomicReference<>();
+    private volatile long scrapeCacheMs = 0L;
+    private volatile CachedSnapshots cachedSnapshots;
+    private long collectionIntervalMs = 0L;
+    private volatile ScheduledExecutorService scheduler;
+    // Number of reporters using the settings of this collector
+    private int users;
 
     /**
      * Constructor used for testing
@@ -52,16 +73,149 @@ public class PrometheusCollector implements MultiCollector {
         collectors.add(collector);
     }
 
+    /**
+     * Register a reporter using the settings of this collector. The settings are shared by all the reporters, once
+     * they are all released the background collection stops.
+     */
+    public synchronized void acquire() {
+        users++;
+    }
+
+    /**
+     * Release a reporter registered with {@link #acquire()}. When no reporter remains, the background collection
+     * thread is stopped and the settings are reset.
+     */
+    public synchronized void release() {
+        if (users > 0 && --users == 0) {
+            setScrapeCacheMs(0L);
+            setCollectionIntervalMs(0L);
+        }
+    }
+
+    /**
+     * Set the maximum age of the collected metrics that can be returned to scrapes. When set to 0, metrics are
+     * collected on every scrape. This is shared by all the reporters, the last value set applies.
+     * @param scrapeCacheMs The maximum age in milliseconds
+     */
+    public synchronized void setScrapeCacheMs(long scrapeCacheMs) {
+        if (this.scrapeCacheMs == scrapeCacheMs) {
+            return;
+        }
+        warnIfShared("scrape cache", this.scrapeCacheMs, scrapeCacheMs);
+        this.scrapeCacheMs = scrapeCacheMs;
+        this.cachedSnapshots = null;
+    }
+
+    /**
+     * Set the interval at which metrics are collected in the background. When set, scrapes are served the latest
+     * metrics collected by a dedicated thread and never access the metrics directly. When set to 0, metrics are
+     * collected when they are scraped. This is shared by all the reporters, the last value set applies.
+     * @param collectionIntervalMs The collection interval in milliseconds
+     */
+    public synchronized void setCollectionIntervalMs(long collectionIntervalMs) {
+        if (this.collectionIntervalMs == collectionIntervalMs) {
+            return;
+        }
+        warnIfShared("collection interval", this.collectionIntervalMs, collectionIntervalMs);
+        this.collectionIntervalMs = collectionIntervalMs;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        publishedSnapshots.set(null);
+        if (collectionIntervalMs > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "prometheus-collector");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::collectInBackground, 0L, collectionIntervalMs, TimeUnit.MILLISECONDS);
+            LOG.debug("Collecting metrics every {}ms in the background", collectionIntervalMs);
+        }
+    }
+
+    /* test */ boolean isCollectingInBackground() {
+        return scheduler != null;
+    }
+
+    private void warnIfShared(String setting, long current, long value) {
+        if (users > 1) {
+            LOG.warn("Changing the {} shared by {} reporters from {}ms to {}ms, all the reporters of a JVM should use the same value", setting, users, current, value);
+        }
+    }
+
+    private void collectInBackground() {
+        try {
+            publishedSnapshots.set(collectSnapshots());
+        } catch (RuntimeException e) {
+            LOG.error("Failed collecting metrics", e);
+        }
+    }
+
     /**
      * Called when the Prometheus server scrapes metrics.
      * @return MetricSnapshots that contains the metrics
      */
     @Override
     public MetricSnapshots collect() {
+        if (scheduler != null) {
+            MetricSnapshots published = publishedSnapshots.get();
+            // Until the first background collection completes, metrics are collected by the scrape
+            return published != null ? published : collectSnapshots();
+        }
+        long maxAgeMs = scrapeCacheMs;
+        if (maxAgeMs <= 0) {
+            return collectSnapshots();
+        }
+        CachedSnapshots cached = cachedSnapshots;
+        if (cached != null && cached.isFresh(maxAgeMs)) {
+            return cached.snapshots;
+        }
+        // Scrapes arriving while a collection is in progress wait for it and share its result
+        synchronized (this) {
+            cached = cachedSnapshots;
+            if (cached == null || !cached.isFresh(maxAgeMs)) {
+                cached = new CachedSnapshots(collectSnapshots());
+                cachedSnapshots = cached;
+            }
+            return cached.snapshots;
+        }
+    }
+
+    private MetricSnapshots collectSnapshots() {
         List<MetricSnapshot> snapshots = new ArrayList<>();
+        boolean limited = false;
+        long rejectedSeries = 0L;
         for (MetricsCollector collector : collectors) {
             snapshots.addAll(collector.collect());
+            OptionalLong rejected = collector.rejectedSeries();
+            if (rejected.isPresent()) {
+                limited = true;
+                rejectedSeries += rejected.getAsLong();
+            }
+        }
+        // Only exposed when series limits are set
+        if (limited) {
+            snapshots.add(CounterSnapshot.builder()
+                    .name(REJECTED_SERIES_NAME)
+                    .help(REJECTED_SERIES_HELP)
+                    .dataPoint(DataPointSnapshotBuilder.counterDataPoint(Labels.EMPTY, rejectedSeries))
+                    .build());
         }
         return new MetricSnapshots(snapshots);
     }
+
+    private static class CachedSnapshots {
+        private final MetricSnapshots snapshots;
+        private final long collectedAtNanos;
+
+        private CachedSnapshots(MetricSnapshots snapshots) {
+            this.snapshots = snapshots;
+            this.collectedAtNanos = System.nanoTime();
+        }
+
+        private boolean isFresh(long maxAgeMs) {
+            return System.nanoTime() - collectedAtNanos < TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        }
+    }
 }
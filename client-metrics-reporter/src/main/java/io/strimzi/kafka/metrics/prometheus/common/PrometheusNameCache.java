@@ -0,0 +1,89 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import java.util.Objects;
+
+/**
+ * Cache of the Prometheus names derived from the 3 components of a metric name, like the prefix, group and name of
+ * Kafka metrics. Many metrics, for example the metrics of each partition, only differ by their tags or scope, so the
+ * names are derived once per distinct components and all the metrics share the same name instance.
+ * The cache is bounded, once full some names are evicted to make room for the next metrics.
+ */
+public class PrometheusNameCache {
+
+    /* test */ static final int MAX_NAMES = 10_000;
+
+    private final BoundedCache<Key, String> names = new BoundedCache<>(MAX_NAMES);
+
+    /**
+     * Constructor
+     */
+    public PrometheusNameCache() { }
+
+    /**
+     * Retrieve the Prometheus name of a metric, deriving it if it's not cached
+     * @param first The first component of the metric name
+     * @param second The second component of the metric name
+     * @param third The third component of the metric name
+     * @param deriver The function deriving the Prometheus name from the components
+     * @return The Prometheus name
+     */
+    public String prometheusName(String first, String second, String third, Deriver deriver) {
+        Key key = new Key(first, second, third);
+        String name = names.get(key);
+        if (name == null) {
+            name = names.putIfAbsent(key, deriver.derive(first, second, third));
+        }
+        return name;
+    }
+
+    /**
+     * Derives a Prometheus name from the components of a metric name
+     */
+    @FunctionalInterface
+    public interface Deriver {
+
+        /**
+         * Derive a Prometheus name
+         * @param first The first component of the metric name
+         * @param second The second component of the metric name
+         * @param third The third component of the metric name
+         * @return The Prometheus name
+         */
+        String derive(String first, String second, String third);
+    }
+
+    private static final class Key {
+        private final String first;
+        private final String second;
+        private final String third;
+        private final int hash;
+
+        private Key(String first, String second, String third) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.hash = Objects.hash(first, second, third);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(first, key.first) && Objects.equals(second, key.second) && Objects.equals(third, key.third);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+/**
+ * Limits on the number of series a reporter exports. The limits are checked when metrics are added. Metrics exceeding
+ * them are either dropped or folded into a single series per family with the {@code overflow="true"} label.
+ * The limits apply to each reporter on its own, reporters sharing a collector in the same JVM don't share them.
+ */
+public class SeriesLimits {
+
+    /**
+     * Limits that allow any number of series
+     */
+    public static final SeriesLimits NONE = new SeriesLimits(0, 0, false);
+
+    private final int maxSeriesPerReporter;
+    private final int maxSeriesPerFamily;
+    private final boolean overflow;
+
+    private SeriesLimits(int maxSeriesPerReporter, int maxSeriesPerFamily, boolean overflow) {
+        this.maxSeriesPerReporter = maxSeriesPerReporter;
+        this.maxSeriesPerFamily = maxSeriesPerFamily;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Create series limits
+     * @param maxSeriesPerReporter The maximum number of series of the reporter, 0 for no limit
+     * @param maxSeriesPerFamily The maximum number of series of each family, 0 for no limit
+     * @param overflow Whether metrics exceeding the limits are folded into an overflow series instead of being dropped
+     * @return The series limits
+     */
+    public static SeriesLimits create(int maxSeriesPerReporter, int maxSeriesPerFamily, boolean overflow) {
+        if (maxSeriesPerReporter <= 0 && maxSeriesPerFamily <= 0) {
+            return NONE;
+        }
+        return new SeriesLimits(maxSeriesPerReporter, maxSeriesPerFamily, overflow);
+    }
+
+    /**
+     * Whether any limit is set
+     * @return true if the number of series is limited, otherwise false
+     */
+    public boolean isEnabled() {
+        return this != NONE;
+    }
+
+    /**
+     * Whether metrics exceeding the limits are folded into an overflow series
+     * @return true if the metrics are folded, false if they are dropped
+     */
+    public boolean overflow() {
+        return overflow;
+    }
+
+    /**
+     * Check whether adding a series exceeds the limits
+     * @param series The current number of series of the reporter
+     * @param familySeries The current number of series of the family of the new series
+     * @return true if the new series exceeds the limits, otherwise false
+     */
+    public boolean isExceeded(int series, int familySeries) {
+        return maxSeriesPerReporter > 0 && series >= maxSeriesPerReporter || maxSeriesPerFamily > 0 && familySeries >= maxSeriesPerFamily;
+    }
+
+    @Override
+    public String toString() {
+        return "SeriesLimits{" +
+                "maxSeriesPerReporter=" + maxSeriesPerReporter +
+                ", maxSeriesPerFamily=" + maxSeriesPerFamily +
+                ", overflow=" + overflow +
+                '}';
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact storage of the series of a family. Series are stored in parallel arrays of keys and metrics indexed by an
+ * int id, and found by key through an open addressing table of ids, so a series costs a few array slots instead of
+ * a hash map node. Ids of removed series are kept in a free list and reused by the next series.
+ * Updates must not run concurrently, this is guaranteed by the reporter which only updates a family while holding
+ * it. Collectors can iterate the metrics concurrently with updates, like with a concurrent map they may or may not
+ * see the concurrent updates.
+ */
+class SeriesTable {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // Keys and metrics by id, null for the free ids. Metrics are read by the collectors, so they are in an atomic array.
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private volatile AtomicReferenceArray<MetricWrapper> metrics = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    // Ids of the removed series
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    // Lowest id that was never used
+    private int nextId;
+    // Open addressing table with linear probing, each slot holds the id of a series plus 1, or 0 if it is empty.
+    // The table is at least twice as large as the arrays so probes stay short.
+    private int[] index = new int[2 * INITIAL_CAPACITY];
+    private volatile int size;
+
+    /**
+     * Add or replace a series
+     * @param key The key of the series
+     * @param metric The metric of the series
+     * @return The previous metric of the series, or null if it is a new series
+     */
+    MetricWrapper put(Object key, MetricWrapper metric) {
+        int slot = slot(key);
+        if (index[slot] != 0) {
+            int id = index[slot] - 1;
+            return metrics.getAndSet(id, metric);
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (nextId == keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            id = nextId++;
+        }
+        keys[id] = key;
+        metrics.set(id, metric);
+        index[slot] = id + 1;
+        size = nextId - freeCount;
+        return null;
+    }
+
+    /**
+     * Retrieve a series, this must not run concurrently with updates
+     * @param key The key of the series
+     * @return The metric of the series, or null if there is no series with this key
+     */
+    MetricWrapper get(Object key) {
+        int slot = slot(key);
+        return index[slot] != 0 ? metrics.get(index[slot] - 1) : null;
+    }
+
+    /**
+     * Remove a series
+     * @param key The key of the series
+     * @return The metric of the series, or null if there is no series with this key
+     */
+    MetricWrapper remove(Object key) {
+        int slot = slot(key);
+        if (index[slot] == 0) {
+            return null;
+        }
+        int id = index[slot] - 1;
+        MetricWrapper previous = metrics.getAndSet(id, null);
+        keys[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+        deleteSlot(slot);
+        size = nextId - freeCount;
+        return previous;
+    }
+
+    /**
+     * The number of series
+     * @return The number of series
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * The metrics of the series, in the order of their ids
+     * @return A collection of MetricWrapper
+     */
+    Collection<MetricWrapper> metrics() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<MetricWrapper> iterator() {
+                return new MetricIterator(metrics);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterate the keys and metrics of the series. Unlike {@link #metrics()}, this must not run concurrently with updates.
+     * @param action The action to run on each series
+     */
+    void forEach(BiConsumer<Object, MetricWrapper> action) {
+        for (int id = 0; id < nextId; id++) {
+            if (keys[id] != null) {
+                action.accept(keys[id], metrics.get(id));
+            }
+        }
+    }
+
+    /**
+     * Find the slot of a key, or the empty slot where it would be inserted
+     */
+    private int slot(Object key) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] != 0 && !key.equals(keys[index[slot] - 1])) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empty a slot and move back the following entries of its probe sequence so lookups don't stop early
+     */
+    private void deleteSlot(int slot) {
+        int mask = index.length - 1;
+        int empty = slot;
+        index[empty] = 0;
+        int next = empty;
+        while (true) {
+            next = (next + 1) & mask;
+            if (index[next] == 0) {
+                return;
+            }
+            int home = hash(keys[index[next] - 1]) & mask;
+            // The entry stays if its home slot is cyclically between the empty slot and its current slot
+            boolean stays = empty <= next ? empty < home && home <= next : empty < home || home <= next;
+            if (!stays) {
+                index[empty] = index[next];
+                index[next] = 0;
+                empty = next;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        AtomicReferenceArray<MetricWrapper> grown = new AtomicReferenceArray<>(capacity);
+        for (int id = 0; id < nextId; id++) {
+            grown.set(id, metrics.get(id));
+        }
+        metrics = grown;
+        index = new int[2 * capacity];
+        int mask = index.length - 1;
+        for (int id = 0; id < nextId; id++) {
+            if (keys[id] != null) {
+                int slot = hash(keys[id]) & mask;
+                while (index[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index[slot] = id + 1;
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static class MetricIterator implements Iterator<MetricWrapper> {
+
+        private final AtomicReferenceArray<MetricWrapper> metrics;
+        private int position;
+        private MetricWrapper next;
+
+        private MetricIterator(AtomicReferenceArray<MetricWrapper> metrics) {
+            this.metrics = metrics;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && position < metrics.length()) {
+                next = metrics.get(position++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public MetricWrapper next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            MetricWrapper current = next;
+            advance();
+            return current;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.prometheus.metrics.exporter.httpserver.MetricsHandler;
+import io.prometheus.metrics.expositionformats.ExpositionFormatWriter;
+import io.prometheus.metrics.expositionformats.ExpositionFormats;
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Handler for the /metrics endpoint that renders each exposition format once per cycle and serves the rendered bytes
+ * to all the scrapes within that cycle. Bodies are rendered lazily the first time a format and encoding combination
+ * is requested in a cycle.
+ * Requests with query parameters, for example to filter metrics by name, are not cached.
+ */
+public class CachingMetricsHandler implements HttpHandler {
+
+    private final PrometheusRegistry registry;
+    private final ExpositionFormats expositionFormats;
+    private final MetricsHandler uncachedHandler;
+    private final long cycleNanos;
+    private volatile Cycle cycle;
+
+    /**
+     * Constructor
+     * @param registry The Prometheus registry to expose
+     * @param cycleMs How long rendered bodies are served before the registry is scraped again
+     */
+    public CachingMetricsHandler(PrometheusRegistry registry, long cycleMs) {
+        this.registry = registry;
+        this.expositionFormats = ExpositionFormats.init();
+        this.uncachedHandler = new MetricsHandler(registry);
+        this.cycleNanos = TimeUnit.MILLISECONDS.toNanos(cycleMs);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestURI().getRawQuery() != null) {
+            uncachedHandler.handle(exchange);
+            return;
+        }
+        try {
+            HttpExchanges.drainRequestBody(exchange);
+            ExpositionFormatWriter writer = expositionFormats.findWriter(exchange.getRequestHeaders().getFirst("Accept"));
+            boolean gzip = HttpExchanges.acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            byte[] body;
+            try {
+                body = currentCycle().body(writer, gzip);
+            } catch (RuntimeException e) {
+                HttpExchanges.sendError(exchange, e);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", writer.getContentType());
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Cycle currentCycle() {
+        Cycle current = cycle;
+        if (current != null && current.isFresh()) {
+            return current;
+        }
+        synchronized (this) {
+            current = cycle;
+            if (current == null || !current.isFresh()) {
+                current = new Cycle(registry.scrape());
+                cycle = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * The snapshots scraped for one cycle and the bodies rendered from them.
+     */
+    private class Cycle {
+        private final MetricSnapshots snapshots;
+        private final long startNanos;
+        private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+
+        private Cycle(MetricSnapshots snapshots) {
+            this.snapshots = snapshots;
+            this.startNanos = System.nanoTime();
+        }
+
+        private boolean isFresh() {
+            return System.nanoTime() - startNanos < cycleNanos;
+        }
+
+        private byte[] body(ExpositionFormatWriter writer, boolean gzip) {
+            String key = writer.getContentType() + (gzip ? ";gzip" : "");
+            return bodies.computeIfAbsent(key, k -> render(writer, gzip));
+        }
+
+        private byte[] render(ExpositionFormatWriter writer, boolean gzip) {
+            try {
+                ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+                if (gzip) {
+                    try (GZIPOutputStream gzipStream = new GZIPOutputStream(body)) {
+                        writer.write(gzipStream, snapshots);
+                    }
+                } else {
+                    writer.write(body, snapshots);
+                }
+                return body.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
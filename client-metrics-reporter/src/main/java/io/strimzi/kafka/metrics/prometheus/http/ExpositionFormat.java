@@ -0,0 +1,54 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import java.util.Locale;
+
+/**
+ * The exposition formats the listener can be forced to serve.
+ */
+public enum ExpositionFormat {
+
+    /**
+     * Negotiate the format from the Accept header of each scrape
+     */
+    AUTO(null),
+    /**
+     * Prometheus text format
+     */
+    TEXT("text/plain; version=0.0.4"),
+    /**
+     * OpenMetrics text format
+     */
+    OPENMETRICS("application/openmetrics-text; version=1.0.0"),
+    /**
+     * Prometheus protobuf format
+     */
+    PROTOBUF("application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited");
+
+    private final String accept;
+
+    ExpositionFormat(String accept) {
+        this.accept = accept;
+    }
+
+    /**
+     * The Accept header selecting this format
+     * @return The Accept header value, or null for {@link #AUTO}
+     */
+    public String accept() {
+        return accept;
+    }
+
+    /**
+     * Parse a format name
+     * @param name The case insensitive name of the format
+     * @return The format
+     * @throws IllegalArgumentException if the name is not a known format
+     */
+    public static ExpositionFormat parse(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
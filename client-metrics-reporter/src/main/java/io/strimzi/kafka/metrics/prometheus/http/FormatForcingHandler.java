@@ -0,0 +1,143 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+/**
+ * Handler that serves a single exposition format regardless of what scrapers accept. The Accept header of each
+ * request is replaced before it reaches the handler rendering the metrics, so format negotiation works the same way
+ * with all the handlers.
+ */
+public class FormatForcingHandler implements HttpHandler {
+
+    private final HttpHandler delegate;
+    private final String accept;
+
+    /**
+     * Constructor
+     * @param delegate The handler serving the requests
+     * @param format The format to serve, must not be {@link ExpositionFormat#AUTO}
+     */
+    public FormatForcingHandler(HttpHandler delegate, ExpositionFormat format) {
+        this.delegate = delegate;
+        this.accept = format.accept();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        delegate.handle(new ForcedAcceptExchange(exchange, accept));
+    }
+
+    /**
+     * Exchange exposing a different Accept header. All other methods delegate to the original exchange.
+     */
+    private static class ForcedAcceptExchange extends HttpExchange {
+        private final HttpExchange exchange;
+        private final Headers requestHeaders;
+
+        private ForcedAcceptExchange(HttpExchange exchange, String accept) {
+            this.exchange = exchange;
+            this.requestHeaders = new Headers();
+            this.requestHeaders.putAll(exchange.getRequestHeaders());
+            this.requestHeaders.set("Accept", accept);
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return requestHeaders;
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return exchange.getResponseHeaders();
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return exchange.getRequestURI();
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return exchange.getRequestMethod();
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return exchange.getHttpContext();
+        }
+
+        @Override
+        public void close() {
+            exchange.close();
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return exchange.getRequestBody();
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return exchange.getResponseBody();
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+            exchange.sendResponseHeaders(rCode, responseLength);
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return exchange.getRemoteAddress();
+        }
+
+        @Override
+        public int getResponseCode() {
+            return exchange.getResponseCode();
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return exchange.getLocalAddress();
+        }
+
+        @Override
+        public String getProtocol() {
+            return exchange.getProtocol();
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return exchange.getAttribute(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            exchange.setAttribute(name, value);
+        }
+
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+            exchange.setStreams(i, o);
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return exchange.getPrincipal();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Helpers shared by the handlers of the /metrics endpoint.
+ */
+class HttpExchanges {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpExchanges.class);
+
+    private HttpExchanges() {
+        // utility class that shouldn't be instantiated
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            if (encoding.trim().toLowerCase(Locale.ROOT).startsWith("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Respond with an internal server error when the metrics can't be collected or rendered, before sending any
+     * other header.
+     */
+    static void sendError(HttpExchange exchange, Exception e) throws IOException {
+        LOG.error("Failed collecting metrics", e);
+        exchange.getResponseHeaders().clear();
+        exchange.sendResponseHeaders(500, -1);
+    }
+
+    static void drainRequestBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            while (is.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+}
@@ -4,14 +4,24 @@
  */
 package io.strimzi.kafka.metrics.prometheus.http;
 
-import io.prometheus.metrics.exporter.httpserver.HTTPServer;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.prometheus.metrics.exporter.httpserver.DefaultHandler;
+import io.prometheus.metrics.exporter.httpserver.HealthyHandler;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -21,6 +31,8 @@ public class HttpServers {
 
     private final static Logger LOG = LoggerFactory.getLogger(HttpServers.class);
     private static final Map<Listener, ServerCounter> SERVERS = new HashMap<>();
+    /* test */ static final int MAX_THREADS = 10;
+    /* test */ static final int MAX_QUEUED_REQUESTS = 100;
 
     private HttpServers() {
         // utility class that shouldn't be instantiated
@@ -32,10 +44,33 @@ public class HttpServers {
      * @param registry The Prometheus registry to expose
      * @return A ServerCounter instance
      */
-    public synchronized static ServerCounter getOrCreate(Listener listener, PrometheusRegistry registry) {
+    public static ServerCounter getOrCreate(Listener listener, PrometheusRegistry registry) {
+        return getOrCreate(listener, registry, 0L);
+    }
+
+    /**
+     * Get or create a new HTTP server if there isn't an existing instance for the specified listener.
+     * @param listener The host and port
+     * @param registry The Prometheus registry to expose
+     * @param expositionCacheMs How long the rendered responses are served to scrapes, 0 to render them on every scrape.
+     *                          This is only used if a new HTTP server is created.
+     * @return A ServerCounter instance
+     */
+    public static ServerCounter getOrCreate(Listener listener, PrometheusRegistry registry, long expositionCacheMs) {
+        return getOrCreate(listener, registry, new ListenerOptions(expositionCacheMs, false, false, 0, ExpositionFormat.AUTO));
+    }
+
+    /**
+     * Get or create a new HTTP server if there isn't an existing instance for the specified listener.
+     * @param listener The host and port
+     * @param registry The Prometheus registry to expose
+     * @param options The options of the HTTP server. This is only used if a new HTTP server is created.
+     * @return A ServerCounter instance
+     */
+    public synchronized static ServerCounter getOrCreate(Listener listener, PrometheusRegistry registry, ListenerOptions options) {
         ServerCounter serverCounter = SERVERS.get(listener);
         if (serverCounter == null) {
-            serverCounter = new ServerCounter(listener, registry);
+            serverCounter = new ServerCounter(listener, registry, options);
             serverCounter.start();
             SERVERS.put(listener, serverCounter);
         }
@@ -57,19 +92,17 @@ public class HttpServers {
      * Class used to keep track of the HTTP server started on a listener.
      */
     public static class ServerCounter {
-        private final HTTPServer.Builder builder;
+        private final HttpHandler metricsHandler;
         private final Listener listener;
+        private final ListenerOptions options;
         private final AtomicInteger count;
-        private HTTPServer server;
-
-        private ServerCounter(Listener listener, PrometheusRegistry registry) {
-            this.builder = HTTPServer.builder()
-                .port(listener.port)
-                .registry(registry);
-            if (!listener.host.isEmpty()) {
-                builder.hostname(listener.host);
-            }
+        private HttpServer server;
+        private ExecutorService executor;
+
+        private ServerCounter(Listener listener, PrometheusRegistry registry, ListenerOptions options) {
+            this.metricsHandler = options.createMetricsHandler(registry);
             this.listener = listener;
+            this.options = options;
             this.count = new AtomicInteger();
         }
 
@@ -77,13 +110,63 @@ public class HttpServers {
          * Start the HTTP server.
          */
         private void start() {
+            InetSocketAddress address = listener.host.isEmpty()
+                    ? new InetSocketAddress(listener.port)
+                    : new InetSocketAddress(listener.host, listener.port);
             try {
-                this.server = builder.buildAndStart();
-                LOG.debug("Started HTTP server on http://{}:{}", listener.host, server.getPort());
+                server = HttpServer.create(address, 0);
             } catch (IOException e) {
                 LOG.error("Failed starting HTTP server", e);
                 throw new RuntimeException(e);
             }
+            // Same endpoints as the Prometheus HTTPServer
+            server.createContext("/", new DefaultHandler());
+            server.createContext("/metrics", metricsHandler);
+            server.createContext("/-/healthy", new HealthyHandler());
+            executor = executor(options.virtualThreads, listener.port);
+            server.setExecutor(executor);
+            server.start();
+            LOG.debug("Started HTTP server on http://{}:{} with {}", listener.host, port(), options);
+        }
+
+        /**
+         * Select the executor handling the requests
+         * @param virtualThreads Whether to use virtual threads if the JVM supports them
+         * @param port The port of the listener, used to name the threads
+         * @return The executor
+         */
+        /* test */ static ExecutorService executor(boolean virtualThreads, int port) {
+            ExecutorService executor = virtualThreads ? virtualThreadExecutor() : null;
+            return executor != null ? executor : platformThreadExecutor(port);
+        }
+
+        /**
+         * Up to 10 threads like the Prometheus HTTPServer, with a bounded queue of pending requests. Requests are
+         * never handled by the accepting thread, once the queue is full the connections of new requests are closed.
+         */
+        private static ExecutorService platformThreadExecutor(int port) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 120L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_REQUESTS), runnable -> {
+                Thread thread = new Thread(runnable, "prometheus-http-" + port);
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+
+        /**
+         * Each request gets its own virtual thread so a slow scrape never delays the others. Virtual threads are
+         * only available from Java 21 and this module targets Java 11, so the executor is looked up reflectively.
+         * @return The executor, or null if the JVM does not support virtual threads
+         */
+        private static ExecutorService virtualThreadExecutor() {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOG.warn("Virtual threads are not supported by Java {}, handling requests on platform threads", System.getProperty("java.version"));
+                return null;
+            }
         }
 
         /**
@@ -92,14 +175,15 @@ public class HttpServers {
          * @return The port number
          */
         public int port() {
-            return server.getPort();
+            return server.getAddress().getPort();
         }
 
         private synchronized boolean close() {
             int remaining = count.decrementAndGet();
             if (remaining == 0) {
-                server.close();
-                LOG.debug("Stopped HTTP server on http://{}:{}", listener.host, server.getPort());
+                server.stop(0);
+                executor.shutdown();
+                LOG.debug("Stopped HTTP server on http://{}:{}", listener.host, port());
                 return true;
             }
             return false;
@@ -0,0 +1,49 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Handler that bounds the number of requests handled concurrently by another handler. Requests exceeding the limit
+ * are rejected with 503 straight away so a slow collection can't pile up scrapes and their threads.
+ */
+public class InflightLimitingHandler implements HttpHandler {
+
+    private final HttpHandler delegate;
+    private final Semaphore permits;
+
+    /**
+     * Constructor
+     * @param delegate The handler serving the requests
+     * @param maxInflightRequests The maximum number of requests handled concurrently
+     */
+    public InflightLimitingHandler(HttpHandler delegate, int maxInflightRequests) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxInflightRequests);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!permits.tryAcquire()) {
+            try {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                exchange.close();
+            }
+            return;
+        }
+        try {
+            delegate.handle(exchange);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import com.sun.net.httpserver.HttpHandler;
+import io.prometheus.metrics.exporter.httpserver.MetricsHandler;
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+
+/**
+ * Options of the HTTP server started on a listener. They are only used when the server is created, components
+ * sharing a listener share the options of the first one that started it.
+ */
+public class ListenerOptions {
+
+    /**
+     * Options of a server rendering responses in memory on every scrape, on platform threads, without in-flight limit, negotiating the format
+     */
+    public static final ListenerOptions DEFAULT = new ListenerOptions(0L, false, false, 0, ExpositionFormat.AUTO);
+
+    /**
+     * How long the rendered responses are served to scrapes, 0 to render them on every scrape
+     */
+    public final long expositionCacheMs;
+    /**
+     * Whether responses that are not cached are streamed instead of being rendered in memory before being sent
+     */
+    public final boolean streaming;
+    /**
+     * Whether requests are handled on virtual threads when the JVM supports them
+     */
+    public final boolean virtualThreads;
+    /**
+     * The maximum number of scrapes handled concurrently, 0 for no limit
+     */
+    public final int maxInflightRequests;
+    /**
+     * The exposition format served to all scrapes, {@link ExpositionFormat#AUTO} to negotiate it with each scraper
+     */
+    public final ExpositionFormat format;
+
+    /**
+     * Constructor
+     * @param expositionCacheMs How long the rendered responses are served to scrapes, 0 to render them on every scrape
+     * @param streaming Whether responses that are not cached are streamed
+     * @param virtualThreads Whether requests are handled on virtual threads when the JVM supports them
+     * @param maxInflightRequests The maximum number of scrapes handled concurrently, 0 for no limit
+     * @param format The exposition format served to all scrapes, {@link ExpositionFormat#AUTO} to negotiate it
+     */
+    public ListenerOptions(long expositionCacheMs, boolean streaming, boolean virtualThreads, int maxInflightRequests, ExpositionFormat format) {
+        this.expositionCacheMs = expositionCacheMs;
+        this.streaming = streaming;
+        this.virtualThreads = virtualThreads;
+        this.maxInflightRequests = maxInflightRequests;
+        this.format = format;
+    }
+
+    /**
+     * Create the handler for the /metrics endpoint matching these options
+     * @param registry The Prometheus registry to expose
+     * @return The handler
+     */
+    HttpHandler createMetricsHandler(PrometheusRegistry registry) {
+        HttpHandler handler;
+        if (expositionCacheMs > 0) {
+            handler = new CachingMetricsHandler(registry, expositionCacheMs);
+        } else if (streaming) {
+            handler = new StreamingMetricsHandler(registry);
+        } else {
+            handler = new MetricsHandler(registry);
+        }
+        if (format != ExpositionFormat.AUTO) {
+            handler = new FormatForcingHandler(handler, format);
+        }
+        return maxInflightRequests > 0 ? new InflightLimitingHandler(handler, maxInflightRequests) : handler;
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerOptions{" +
+                "expositionCacheMs=" + expositionCacheMs +
+                ", streaming=" + streaming +
+                ", virtualThreads=" + virtualThreads +
+                ", maxInflightRequests=" + maxInflightRequests +
+                ", format=" + format +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.prometheus.metrics.exporter.httpserver.MetricsHandler;
+import io.prometheus.metrics.expositionformats.ExpositionFormatWriter;
+import io.prometheus.metrics.expositionformats.ExpositionFormats;
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Handler for the /metrics endpoint that streams the response. The default handler renders the whole body in memory
+ * to set the Content-Length header before sending the first byte. This handler uses chunked transfer encoding and
+ * writes each metric family to the connection as it is rendered, so memory usage is bounded by the buffer size
+ * regardless of the size of the response.
+ * Requests with query parameters, for example to filter metrics by name, are handled by the default handler.
+ */
+public class StreamingMetricsHandler implements HttpHandler {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final PrometheusRegistry registry;
+    private final ExpositionFormats expositionFormats;
+    private final MetricsHandler defaultHandler;
+
+    /**
+     * Constructor
+     * @param registry The Prometheus registry to expose
+     */
+    public StreamingMetricsHandler(PrometheusRegistry registry) {
+        this.registry = registry;
+        this.expositionFormats = ExpositionFormats.init();
+        this.defaultHandler = new MetricsHandler(registry);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestURI().getRawQuery() != null) {
+            defaultHandler.handle(exchange);
+            return;
+        }
+        try {
+            HttpExchanges.drainRequestBody(exchange);
+            ExpositionFormatWriter writer = expositionFormats.findWriter(exchange.getRequestHeaders().getFirst("Accept"));
+            boolean gzip = HttpExchanges.acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+
+            exchange.getResponseHeaders().set("Content-Type", writer.getContentType());
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            MetricSnapshots snapshots;
+            try {
+                snapshots = registry.scrape();
+            } catch (RuntimeException e) {
+                HttpExchanges.sendError(exchange, e);
+                return;
+            }
+            // A length of 0 selects chunked transfer encoding
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = responseStream(exchange, gzip)) {
+                writer.write(os, snapshots);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static OutputStream responseStream(HttpExchange exchange, boolean gzip) throws IOException {
+        if (gzip) {
+            return new GZIPOutputStream(exchange.getResponseBody(), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(exchange.getResponseBody(), BUFFER_SIZE);
+    }
+}
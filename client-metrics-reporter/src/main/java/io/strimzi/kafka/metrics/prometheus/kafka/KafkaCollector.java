@@ -10,6 +10,8 @@ import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.MetricSnapshot;
 import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
 import io.strimzi.kafka.metrics.prometheus.common.DataPointSnapshotBuilder;
+import io.strimzi.kafka.metrics.prometheus.common.FamilyIndex;
+import io.strimzi.kafka.metrics.prometheus.common.MetricFamily;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
 import io.strimzi.kafka.metrics.prometheus.common.MetricsCollector;
 import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
@@ -18,11 +20,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -40,6 +43,10 @@ public class KafkaCollector implements MetricsCollector {
     );
 
     private final Set<AbstractReporter> reporters = ConcurrentHashMap.newKeySet();
+    // Families of all the reporters grouped by name, updated as metrics are added and removed
+    private final FamilyIndex familyIndex = new FamilyIndex();
+    // Pool collecting the families in parallel, null to collect them sequentially
+    private volatile ForkJoinPool pool;
 
     /* for testing */ KafkaCollector() { }
 
@@ -69,7 +76,9 @@ public class KafkaCollector implements MetricsCollector {
      * @param reporter The reporter instance to add
      */
     public void addReporter(AbstractReporter reporter) {
-        reporters.add(reporter);
+        if (reporters.add(reporter)) {
+            familyIndex.attach(reporter);
+        }
     }
 
     /**
@@ -77,7 +86,39 @@ public class KafkaCollector implements MetricsCollector {
      * @param reporter The reporter instance to remove
      */
     public void removeReporter(AbstractReporter reporter) {
-        reporters.remove(reporter);
+        if (reporters.remove(reporter)) {
+            familyIndex.detach(reporter);
+            // Stop the collection threads once the last reporter is removed
+            if (reporters.isEmpty()) {
+                setParallelism(1);
+            }
+        }
+    }
+
+    /**
+     * Set the number of threads collecting the metric families. With more than 1 thread, the families are split
+     * across the tasks of a dedicated fork-join pool, which helps processes with many reporters like Connect workers.
+     * This is shared by all the reporters, the last value set applies.
+     * @param parallelism The number of threads, 1 to collect the families sequentially on the scraping thread
+     */
+    public synchronized void setParallelism(int parallelism) {
+        ForkJoinPool current = pool;
+        int currentParallelism = current != null ? current.getParallelism() : 1;
+        if (currentParallelism == parallelism) {
+            return;
+        }
+        if (reporters.size() > 1) {
+            LOG.warn("Changing the collection parallelism shared by {} reporters from {} to {}, all the reporters of a JVM should use the same value", reporters.size(), currentParallelism, parallelism);
+        }
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    /* test */ int parallelism() {
+        ForkJoinPool current = pool;
+        return current != null ? current.getParallelism() : 1;
     }
 
     /**
@@ -87,31 +128,132 @@ public class KafkaCollector implements MetricsCollector {
      */
     @Override
     public List<MetricSnapshot> collect() {
-        Map<String, MetricSnapshot.Builder<?>> builders = new HashMap<>();
+        List<List<MetricFamily>> families = new ArrayList<>(familyIndex.families());
+        ForkJoinPool pool = this.pool;
+        if (pool != null && families.size() > 1) {
+            return collectParallel(pool, families);
+        }
+        return collect(families);
+    }
+
+    /**
+     * Split the families in one chunk per thread and collect each chunk in its own task. Each family name is in a
+     * single chunk, so the snapshots of the chunks don't need to be merged.
+     */
+    private List<MetricSnapshot> collectParallel(ForkJoinPool pool, List<List<MetricFamily>> families) {
+        int chunkSize = (families.size() + pool.getParallelism() - 1) / pool.getParallelism();
+        List<ForkJoinTask<List<MetricSnapshot>>> tasks = new ArrayList<>(pool.getParallelism());
+        for (int i = 0; i < families.size(); i += chunkSize) {
+            List<List<MetricFamily>> chunk = families.subList(i, Math.min(i + chunkSize, families.size()));
+            tasks.add(pool.submit(() -> collect(chunk)));
+        }
+        List<MetricSnapshot> snapshots = new ArrayList<>(families.size());
+        for (ForkJoinTask<List<MetricSnapshot>> task : tasks) {
+            snapshots.addAll(task.join());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Collect the families with the same name of all the reporters into a single snapshot per name
+     */
+    private List<MetricSnapshot> collect(List<List<MetricFamily>> families) {
+        List<MetricSnapshot> snapshots = new ArrayList<>(families.size());
+        for (List<MetricFamily> sameName : families) {
+            MetricSnapshot.Builder<?> builder = collectSameName(sameName);
+            if (builder != null) {
+                snapshots.add(builder.build());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Collect the families with the same name. When a family drops labels or has overflowed metrics, its series can
+     * have the same labels as the series of the other families, so all the families are collapsed together.
+     */
+    private MetricSnapshot.Builder<?> collectSameName(List<MetricFamily> sameName) {
+        List<MetricFamily> collected = new ArrayList<>(sameName.size());
+        boolean collapse = false;
+        boolean shared = false;
+        for (MetricFamily family : sameName) {
+            if (family.size() == 0) {
+                // Left behind by a concurrent removal of the last metric of the family
+                familyIndex.remove(family);
+            } else if (IGNORED_METRIC_NAMES.contains(family.name())) {
+                return null;
+            } else {
+                collected.add(family);
+                collapse |= family.hasCollisions();
+                shared |= family.mayShareLabels();
+            }
+        }
+        if (collapse || shared && collected.size() > 1) {
+            return collectCollapsed(collected);
+        }
+        MetricSnapshot.Builder<?> builder = null;
+        for (MetricFamily family : collected) {
+            for (MetricWrapper metricWrapper : family.metrics()) {
+                builder = collect(family, metricWrapper, builder);
+            }
+        }
+        return builder;
+    }
+
+    @Override
+    public OptionalLong rejectedSeries() {
+        boolean limited = false;
+        long rejected = 0L;
         for (AbstractReporter reporter : reporters) {
-            for (MetricWrapper metricWrapper : reporter.allowedMetrics()) {
-                String prometheusMetricName = metricWrapper.prometheusName();
-                if (IGNORED_METRIC_NAMES.contains(prometheusMetricName)) {
-                    continue;
-                }
-                Object metricValue = ((KafkaMetric) metricWrapper.metric()).metricValue();
-                Labels labels = metricWrapper.labels();
-                LOG.debug("Collecting Kafka metric {} with the following labels: {}", prometheusMetricName, labels);
-                String helpMessage = "Use " + prometheusMetricName + " in allowlist";
-                if (metricValue instanceof Number) {
-                    double value = ((Number) metricValue).doubleValue();
-                    GaugeSnapshot.Builder builder = (GaugeSnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> GaugeSnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                    builder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(labels, value));
-                } else {
-                    InfoSnapshot.Builder builder = (InfoSnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> InfoSnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                    builder.dataPoint(DataPointSnapshotBuilder.infoDataPoint(labels, metricValue, metricWrapper.attribute()));
+            if (reporter.hasSeriesLimits()) {
+                limited = true;
+                rejected += reporter.rejectedSeries();
+            }
+        }
+        return limited ? OptionalLong.of(rejected) : OptionalLong.empty();
+    }
+
+    /**
+     * Collect families with the same name where some metrics have the same labels. Additive gauges are summed,
+     * otherwise only the first metric with each labels is collected.
+     */
+    private static MetricSnapshot.Builder<?> collectCollapsed(List<MetricFamily> families) {
+        MetricFamily family = families.get(0);
+        boolean additive = true;
+        for (MetricFamily sameName : families) {
+            additive &= sameName.isAdditive();
+        }
+        MetricSnapshot.Builder<?> builder = null;
+        for (List<MetricWrapper> series : MetricFamily.series(families)) {
+            MetricWrapper first = series.get(0);
+            if (series.size() > 1 && additive) {
+                double sum = 0;
+                for (MetricWrapper metricWrapper : series) {
+                    Object metricValue = ((KafkaMetric) metricWrapper.metric()).metricValue();
+                    if (metricValue instanceof Number) {
+                        sum += ((Number) metricValue).doubleValue();
+                    }
                 }
+                GaugeSnapshot.Builder gaugeBuilder = builder != null ? (GaugeSnapshot.Builder) builder : GaugeSnapshot.builder().name(family.name()).help(family.help());
+                builder = gaugeBuilder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(first.labels(), sum));
+            } else {
+                builder = collect(family, first, builder);
             }
         }
-        List<MetricSnapshot> snapshots = new ArrayList<>();
-        for (MetricSnapshot.Builder<?> builder : builders.values()) {
-            snapshots.add(builder.build());
+        return builder;
+    }
+
+    private static MetricSnapshot.Builder<?> collect(MetricFamily family, MetricWrapper metricWrapper, MetricSnapshot.Builder<?> builder) {
+        Object metricValue = ((KafkaMetric) metricWrapper.metric()).metricValue();
+        Labels labels = metricWrapper.labels();
+        LOG.debug("Collecting Kafka metric {} with the following labels: {}", family.name(), labels);
+        if (metricValue instanceof Number) {
+            double value = ((Number) metricValue).doubleValue();
+            GaugeSnapshot.Builder gaugeBuilder = builder != null ? (GaugeSnapshot.Builder) builder : GaugeSnapshot.builder().name(family.name()).help(family.help());
+            return gaugeBuilder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(labels, value));
+        } else {
+            InfoSnapshot.Builder infoBuilder = builder != null ? (InfoSnapshot.Builder) builder : InfoSnapshot.builder().name(family.name()).help(family.help());
+            return infoBuilder.dataPoint(DataPointSnapshotBuilder.infoDataPoint(labels, metricValue, metricWrapper.attribute()));
         }
-        return snapshots;
     }
 }
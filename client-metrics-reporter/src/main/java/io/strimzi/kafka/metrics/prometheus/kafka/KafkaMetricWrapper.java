@@ -6,7 +6,10 @@ package io.strimzi.kafka.metrics.prometheus.kafka;
 
 import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.PrometheusNaming;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.LabelInterner;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusNameCache;
 import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.metrics.KafkaMetric;
 import org.slf4j.Logger;
@@ -23,6 +26,8 @@ import java.util.Set;
 public class KafkaMetricWrapper extends MetricWrapper {
 
     private static final Logger LOG = LoggerFactory.getLogger(KafkaMetricWrapper.class);
+    // Prometheus names shared by all the reporters, keyed by prefix, group and name
+    private static final PrometheusNameCache NAMES = new PrometheusNameCache();
 
     /**
      * Constructor from Kafka Metrics
@@ -31,7 +36,18 @@ public class KafkaMetricWrapper extends MetricWrapper {
      * @param attribute The attribute of the Kafka metric
      */
     public KafkaMetricWrapper(String prometheusName, KafkaMetric metric, String attribute) {
-        super(prometheusName, labelsFromTags(metric.metricName().tags(), prometheusName), metric, attribute);
+        this(prometheusName, metric, attribute, LabelFilter.NONE);
+    }
+
+    /**
+     * Constructor from Kafka Metrics
+     * @param prometheusName The name of the metric in the prometheus format
+     * @param metric The Kafka metric
+     * @param attribute The attribute of the Kafka metric
+     * @param labelFilter The filter selecting the labels to keep
+     */
+    public KafkaMetricWrapper(String prometheusName, KafkaMetric metric, String attribute, LabelFilter labelFilter) {
+        super(prometheusName, labelsFromTags(metric.metricName().tags(), prometheusName, labelFilter.forMetric(prometheusName)), metric, attribute);
     }
 
     /**
@@ -41,18 +57,29 @@ public class KafkaMetricWrapper extends MetricWrapper {
      * @return The prometheus metric name
      */
     public static String prometheusName(String prefix, MetricName metricName) {
+        return NAMES.prometheusName(prefix, metricName.group(), metricName.name(), KafkaMetricWrapper::derivePrometheusName);
+    }
+
+    private static String derivePrometheusName(String prefix, String group, String name) {
         return PrometheusNaming.prometheusName(
                 PrometheusNaming.sanitizeMetricName(
-                        prefix + '_' + metricName.group() + '_' + metricName.name()).toLowerCase(Locale.ROOT));
+                        prefix + '_' + group + '_' + name).toLowerCase(Locale.ROOT));
     }
 
     static Labels labelsFromTags(Map<String, String> tags, String metricName) {
+        return labelsFromTags(tags, metricName, LabelFilter.Rule.KEEP_ALL);
+    }
+
+    static Labels labelsFromTags(Map<String, String> tags, String metricName, LabelFilter.Rule rule) {
         Labels.Builder builder = Labels.builder();
         Set<String> labelNames = new HashSet<>();
         for (Map.Entry<String, String> label : tags.entrySet()) {
-            String newLabelName = PrometheusNaming.sanitizeLabelName(label.getKey());
+            String newLabelName = LabelInterner.labelName(label.getKey());
+            if (!rule.keeps(newLabelName)) {
+                continue;
+            }
             if (labelNames.add(newLabelName)) {
-                builder.label(newLabelName, label.getValue());
+                builder.label(newLabelName, LabelInterner.labelValue(label.getValue()));
             } else {
                 LOG.warn("Ignoring duplicate label key: {} with value: {} from metric: {} ", newLabelName, label.getValue(), metricName);
             }
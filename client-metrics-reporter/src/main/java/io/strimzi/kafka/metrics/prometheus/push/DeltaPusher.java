@@ -0,0 +1,346 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.ClassicHistogramBuckets;
+import io.prometheus.metrics.model.snapshots.CounterSnapshot;
+import io.prometheus.metrics.model.snapshots.DataPointSnapshot;
+import io.prometheus.metrics.model.snapshots.DistributionDataPointSnapshot;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.HistogramSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+import io.prometheus.metrics.model.snapshots.NativeHistogramBuckets;
+import io.prometheus.metrics.model.snapshots.Quantile;
+import io.prometheus.metrics.model.snapshots.StateSetSnapshot;
+import io.prometheus.metrics.model.snapshots.SummarySnapshot;
+import io.prometheus.metrics.model.snapshots.UnknownSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Pushes the metrics of a registry to an OTLP/HTTP endpoint. Only the series whose value changed since they were last
+ * pushed are sent, unchanged series are sent again once the resend interval has elapsed so receivers don't consider
+ * them stale. Without spool, series that fail to be pushed are sent again on the next push. With a spool, requests
+ * that fail are spooled and replayed oldest first, a limited number on each push. While requests are spooled, new
+ * requests are appended to the spool so the receiver gets the samples of each series in order, and they are replayed
+ * in addition to the limit so the spool shrinks on each push once the receiver is available again. Requests rejected
+ * by the receiver with a client error other than 429 would be rejected again, so they are dropped instead.
+ * To detect changes, the pusher keeps a 64-bit hash of everything pushed for each series, about 80 bytes per series in
+ * addition to its labels. Only the series of the last scrape are kept, so this is bounded by the number of exported series.
+ */
+@SuppressWarnings("ClassFanOutComplexity")
+class DeltaPusher implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeltaPusher.class);
+
+    private final PushOptions options;
+    private final PrometheusRegistry registry;
+    private final Map<String, String> resourceAttributes;
+    private final HttpClient client;
+    private final Spool spool;
+    private final long startTimeMs;
+    // Last pushed state of each series, by metric name and labels. Only accessed by the pushing thread.
+    private Map<String, Map<Labels, Series>> pushed = new HashMap<>();
+    // Number of requests of the current push appended to the spool behind older requests
+    private int spooledInPush;
+
+    DeltaPusher(PushOptions options, PrometheusRegistry registry, Map<String, String> resourceAttributes, Spool spool) {
+        this.options = options;
+        this.spool = spool;
+        this.registry = registry;
+        this.resourceAttributes = resourceAttributes;
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(options.intervalMs)).build();
+        this.startTimeMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public void run() {
+        try {
+            push();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed pushing metrics to {}", options.url, e);
+        }
+    }
+
+    /**
+     * Push the series that changed
+     * @return The number of data points pushed successfully
+     */
+    synchronized int push() {
+        boolean available = replay(options.spoolReplayBatches);
+        spooledInPush = 0;
+        int sent = pushChanged();
+        if (available && spooledInPush > 0) {
+            // Replay the requests of this push too, otherwise the spool never drains when a push has more requests
+            // than the replay limit
+            replay(spooledInPush);
+        }
+        LOG.trace("Pushed {} data points to {}", sent, options.url);
+        return sent;
+    }
+
+    /**
+     * Scrape the registry and send or spool the series that changed
+     */
+    private int pushChanged() {
+        long nowMs = System.currentTimeMillis();
+        MetricSnapshots snapshots = registry.scrape();
+        Map<String, Map<Labels, Series>> current = new HashMap<>();
+        Batch batch = new Batch(new OtlpJsonEncoder(resourceAttributes, nowMs, startTimeMs));
+        int sent = 0;
+        for (MetricSnapshot snapshot : snapshots) {
+            String name = snapshot.getMetadata().getName();
+            Map<Labels, Series> previousSeries = pushed.getOrDefault(name, Map.of());
+            Map<Labels, Series> currentSeries = current.computeIfAbsent(name, n -> new HashMap<>());
+            List<DataPointSnapshot> changed = new ArrayList<>();
+            for (DataPointSnapshot dataPoint : snapshot.getDataPoints()) {
+                long fingerprint = fingerprint(dataPoint);
+                Series previous = previousSeries.get(dataPoint.getLabels());
+                if (previous != null && previous.fingerprint == fingerprint && !isResendDue(previous, nowMs)) {
+                    currentSeries.put(dataPoint.getLabels(), previous);
+                    continue;
+                }
+                if (previous != null) {
+                    // Kept until the new value is pushed successfully
+                    currentSeries.put(dataPoint.getLabels(), previous);
+                }
+                changed.add(dataPoint);
+                batch.pending.add(new Pending(currentSeries, dataPoint.getLabels(), new Series(fingerprint, nowMs)));
+                if (batch.pending.size() >= options.batchSize) {
+                    batch.encoder.add(snapshot, changed);
+                    sent += send(batch);
+                    batch = new Batch(new OtlpJsonEncoder(resourceAttributes, nowMs, startTimeMs));
+                    changed = new ArrayList<>();
+                }
+            }
+            if (!changed.isEmpty()) {
+                batch.encoder.add(snapshot, changed);
+            }
+        }
+        if (!batch.pending.isEmpty()) {
+            sent += send(batch);
+        }
+        pushed = current;
+        return sent;
+    }
+
+    private boolean isResendDue(Series series, long nowMs) {
+        return options.resendIntervalMs > 0 && nowMs - series.pushedMs >= options.resendIntervalMs;
+    }
+
+    /**
+     * Send a batch, or spool it if older requests are still spooled or if it cannot be sent
+     * @return The number of data points sent
+     */
+    private int send(Batch batch) {
+        byte[] body = batch.encoder.build().getBytes(StandardCharsets.UTF_8);
+        boolean spooling = spool != null && !spool.isEmpty();
+        if (!spooling) {
+            Result result = post(body);
+            if (result == Result.SENT) {
+                markPushed(batch);
+                return batch.pending.size();
+            } else if (result == Result.REJECTED) {
+                return 0;
+            }
+        }
+        if (spool != null && append(body)) {
+            // The spooled request will deliver these values
+            markPushed(batch);
+            if (spooling) {
+                spooledInPush++;
+            }
+        }
+        return 0;
+    }
+
+    private static void markPushed(Batch batch) {
+        for (Pending pending : batch.pending) {
+            pending.series.put(pending.labels, pending.update);
+        }
+    }
+
+    private boolean append(byte[] body) {
+        try {
+            return spool.append(body);
+        } catch (IOException e) {
+            LOG.warn("Failed spooling push request to {}", options.spoolDir, e);
+            return false;
+        }
+    }
+
+    /**
+     * Send the oldest spooled requests, stopping at the first failure that may be retried
+     * @param batches The maximum number of requests to send
+     * @return false if a request failed and may be retried, otherwise true
+     */
+    private boolean replay(int batches) {
+        if (spool == null) {
+            return true;
+        }
+        for (int i = 0; i < batches; i++) {
+            Optional<byte[]> body = spool.peek();
+            if (body.isEmpty()) {
+                return true;
+            }
+            Result result = post(body.get());
+            if (result == Result.FAILED) {
+                return false;
+            } else if (result == Result.REJECTED) {
+                LOG.warn("Dropping spooled push request of {} bytes rejected by {}", body.get().length, options.url);
+            }
+            spool.remove();
+        }
+        return true;
+    }
+
+    private Result post(byte[] body) {
+        HttpRequest request = HttpRequest.newBuilder(options.url)
+                .timeout(Duration.ofMillis(options.intervalMs))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status / 100 == 2) {
+                return Result.SENT;
+            }
+            LOG.warn("Failed pushing {} bytes to {}, received status {}: {}", body.length, options.url, status, response.body());
+            // Only server errors and throttling may succeed if the request is sent again
+            return status / 100 == 4 && status != 429 ? Result.REJECTED : Result.FAILED;
+        } catch (IOException e) {
+            LOG.warn("Failed pushing {} bytes to {}", body.length, options.url, e);
+            return Result.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.FAILED;
+        }
+    }
+
+    /**
+     * A 64-bit hash of all the values pushed for a data point, so any change, including a single quantile or bucket
+     * of a distribution, is pushed
+     */
+    private static long fingerprint(DataPointSnapshot dataPoint) {
+        if (dataPoint instanceof CounterSnapshot.CounterDataPointSnapshot) {
+            return hash(0L, ((CounterSnapshot.CounterDataPointSnapshot) dataPoint).getValue());
+        } else if (dataPoint instanceof GaugeSnapshot.GaugeDataPointSnapshot) {
+            return hash(0L, ((GaugeSnapshot.GaugeDataPointSnapshot) dataPoint).getValue());
+        } else if (dataPoint instanceof UnknownSnapshot.UnknownDataPointSnapshot) {
+            return hash(0L, ((UnknownSnapshot.UnknownDataPointSnapshot) dataPoint).getValue());
+        } else if (dataPoint instanceof SummarySnapshot.SummaryDataPointSnapshot) {
+            SummarySnapshot.SummaryDataPointSnapshot summary = (SummarySnapshot.SummaryDataPointSnapshot) dataPoint;
+            long hash = distributionHash(summary);
+            for (Quantile quantile : summary.getQuantiles()) {
+                hash = hash(hash(hash, quantile.getQuantile()), quantile.getValue());
+            }
+            return hash;
+        } else if (dataPoint instanceof HistogramSnapshot.HistogramDataPointSnapshot) {
+            return histogramHash((HistogramSnapshot.HistogramDataPointSnapshot) dataPoint);
+        } else if (dataPoint instanceof StateSetSnapshot.StateSetDataPointSnapshot) {
+            StateSetSnapshot.StateSetDataPointSnapshot stateSet = (StateSetSnapshot.StateSetDataPointSnapshot) dataPoint;
+            long hash = 0L;
+            for (int i = 0; i < stateSet.size(); i++) {
+                hash = hash(hash, stateSet.isTrue(i) ? 1L : 0L);
+            }
+            return hash;
+        }
+        // Info metrics only have labels
+        return 0L;
+    }
+
+    private static long distributionHash(DistributionDataPointSnapshot distribution) {
+        return hash(hash(0L, distribution.hasCount() ? distribution.getCount() : 0L), distribution.hasSum() ? distribution.getSum() : 0.0);
+    }
+
+    private static long histogramHash(HistogramSnapshot.HistogramDataPointSnapshot histogram) {
+        long hash = distributionHash(histogram);
+        if (histogram.hasNativeHistogramData()) {
+            hash = hash(hash(hash(hash, histogram.getNativeSchema()), histogram.getNativeZeroCount()), histogram.getNativeZeroThreshold());
+            hash = bucketsHash(bucketsHash(hash, histogram.getNativeBucketsForPositiveValues()), histogram.getNativeBucketsForNegativeValues());
+        } else {
+            ClassicHistogramBuckets buckets = histogram.getClassicBuckets();
+            for (int i = 0; i < buckets.size(); i++) {
+                hash = hash(hash(hash, buckets.getUpperBound(i)), buckets.getCount(i));
+            }
+        }
+        return hash;
+    }
+
+    private static long bucketsHash(long hash, NativeHistogramBuckets buckets) {
+        // The number of buckets separates the positive buckets from the negative ones
+        hash = hash(hash, buckets.size());
+        for (int i = 0; i < buckets.size(); i++) {
+            hash = hash(hash(hash, buckets.getBucketIndex(i)), buckets.getCount(i));
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, double value) {
+        return hash(hash, Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Mix a value into a hash, the multiplication and rotation spread each bit of the value over the whole hash
+     */
+    private static long hash(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * 0x9E3779B97F4A7C15L, 31);
+    }
+
+    private enum Result {
+        SENT,
+        // The request would be rejected again
+        REJECTED,
+        // The request may succeed if sent again
+        FAILED
+    }
+
+    private static class Series {
+        private final long fingerprint;
+        private final long pushedMs;
+
+        private Series(long fingerprint, long pushedMs) {
+            this.fingerprint = fingerprint;
+            this.pushedMs = pushedMs;
+        }
+    }
+
+    private static class Pending {
+        private final Map<Labels, Series> series;
+        private final Labels labels;
+        private final Series update;
+
+        private Pending(Map<Labels, Series> series, Labels labels, Series update) {
+            this.series = series;
+            this.labels = labels;
+            this.update = update;
+        }
+    }
+
+    private static class Batch {
+        private final OtlpJsonEncoder encoder;
+        private final List<Pending> pending = new ArrayList<>();
+
+        private Batch(OtlpJsonEncoder encoder) {
+            this.encoder = encoder;
+        }
+    }
+}
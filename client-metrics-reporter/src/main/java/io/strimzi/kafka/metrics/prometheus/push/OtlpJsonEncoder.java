@@ -0,0 +1,276 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import io.prometheus.metrics.model.snapshots.ClassicHistogramBuckets;
+import io.prometheus.metrics.model.snapshots.CounterSnapshot;
+import io.prometheus.metrics.model.snapshots.DataPointSnapshot;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.HistogramSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.prometheus.metrics.model.snapshots.NativeHistogramBuckets;
+import io.prometheus.metrics.model.snapshots.Quantile;
+import io.prometheus.metrics.model.snapshots.StateSetSnapshot;
+import io.prometheus.metrics.model.snapshots.SummarySnapshot;
+import io.prometheus.metrics.model.snapshots.UnknownSnapshot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes metric snapshots into an OTLP {@code ExportMetricsServiceRequest} using the JSON encoding of OTLP/HTTP.
+ * Counters are sums, summaries are summaries, native histograms are exponential histograms and classic histograms
+ * are histograms. Info, state set and unknown metrics are gauges.
+ */
+class OtlpJsonEncoder {
+
+    // Cumulative aggregation temporality
+    private static final int CUMULATIVE = 2;
+
+    private final StringBuilder json = new StringBuilder();
+    private final String timeUnixNano;
+    private final String startTimeUnixNano;
+    private boolean firstMetric = true;
+
+    /**
+     * Constructor
+     * @param resourceAttributes The attributes of the resource pushing the metrics
+     * @param timeMs The time of the data points in milliseconds
+     * @param startTimeMs The start time of the cumulative data points in milliseconds
+     */
+    OtlpJsonEncoder(Map<String, String> resourceAttributes, long timeMs, long startTimeMs) {
+        this.timeUnixNano = nanos(timeMs);
+        this.startTimeUnixNano = nanos(startTimeMs);
+        json.append("{\"resourceMetrics\":[{\"resource\":{\"attributes\":[");
+        boolean first = true;
+        for (Map.Entry<String, String> attribute : resourceAttributes.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            attribute(attribute.getKey(), attribute.getValue());
+        }
+        json.append("]},\"scopeMetrics\":[{\"scope\":{\"name\":\"strimzi-metrics-reporter\"},\"metrics\":[");
+    }
+
+    /**
+     * Add data points of a metric
+     * @param snapshot The snapshot of the metric
+     * @param dataPoints The data points to add, a subset of the data points of the snapshot
+     */
+    void add(MetricSnapshot snapshot, List<DataPointSnapshot> dataPoints) {
+        if (!firstMetric) {
+            json.append(',');
+        }
+        firstMetric = false;
+        json.append("{\"name\":");
+        string(snapshot.getMetadata().getName());
+        json.append(",\"description\":");
+        string(snapshot.getMetadata().getHelp() != null ? snapshot.getMetadata().getHelp() : "");
+        if (snapshot instanceof CounterSnapshot) {
+            json.append(",\"sum\":{\"aggregationTemporality\":").append(CUMULATIVE).append(",\"isMonotonic\":true,\"dataPoints\":[");
+        } else if (snapshot instanceof SummarySnapshot) {
+            json.append(",\"summary\":{\"dataPoints\":[");
+        } else if (snapshot instanceof HistogramSnapshot && isNative(dataPoints)) {
+            json.append(",\"exponentialHistogram\":{\"aggregationTemporality\":").append(CUMULATIVE).append(",\"dataPoints\":[");
+        } else if (snapshot instanceof HistogramSnapshot) {
+            json.append(",\"histogram\":{\"aggregationTemporality\":").append(CUMULATIVE).append(",\"dataPoints\":[");
+        } else {
+            json.append(",\"gauge\":{\"dataPoints\":[");
+        }
+        boolean first = true;
+        for (DataPointSnapshot dataPoint : dataPoints) {
+            first = dataPoint(dataPoint, first);
+        }
+        json.append("]}}");
+    }
+
+    /**
+     * Finish the request
+     * @return The JSON encoded request
+     */
+    String build() {
+        return json.append("]}]}]}").toString();
+    }
+
+    private static boolean isNative(List<DataPointSnapshot> dataPoints) {
+        return !dataPoints.isEmpty() && ((HistogramSnapshot.HistogramDataPointSnapshot) dataPoints.get(0)).hasNativeHistogramData();
+    }
+
+    private boolean dataPoint(DataPointSnapshot dataPoint, boolean first) {
+        if (dataPoint instanceof CounterSnapshot.CounterDataPointSnapshot) {
+            number(dataPoint.getLabels(), first, true, ((CounterSnapshot.CounterDataPointSnapshot) dataPoint).getValue());
+        } else if (dataPoint instanceof GaugeSnapshot.GaugeDataPointSnapshot) {
+            number(dataPoint.getLabels(), first, false, ((GaugeSnapshot.GaugeDataPointSnapshot) dataPoint).getValue());
+        } else if (dataPoint instanceof UnknownSnapshot.UnknownDataPointSnapshot) {
+            number(dataPoint.getLabels(), first, false, ((UnknownSnapshot.UnknownDataPointSnapshot) dataPoint).getValue());
+        } else if (dataPoint instanceof StateSetSnapshot.StateSetDataPointSnapshot) {
+            return stateSet((StateSetSnapshot.StateSetDataPointSnapshot) dataPoint, first);
+        } else if (dataPoint instanceof SummarySnapshot.SummaryDataPointSnapshot) {
+            summary((SummarySnapshot.SummaryDataPointSnapshot) dataPoint, first);
+        } else if (dataPoint instanceof HistogramSnapshot.HistogramDataPointSnapshot) {
+            histogram((HistogramSnapshot.HistogramDataPointSnapshot) dataPoint, first);
+        } else {
+            // Info metrics carry their value in the labels
+            number(dataPoint.getLabels(), first, false, 1.0);
+        }
+        return false;
+    }
+
+    private void number(Labels labels, boolean first, boolean cumulative, double value) {
+        startDataPoint(labels, first, cumulative);
+        json.append(",\"asDouble\":");
+        number(value);
+        json.append('}');
+    }
+
+    /**
+     * Each state is a gauge with the state label, set to 1 if the state is true, otherwise 0
+     * @return Whether the next data point is the first one
+     */
+    private boolean stateSet(StateSetSnapshot.StateSetDataPointSnapshot dataPoint, boolean first) {
+        for (int i = 0; i < dataPoint.size(); i++) {
+            number(dataPoint.getLabels().add("state", dataPoint.getName(i)), first && i == 0, false, dataPoint.isTrue(i) ? 1.0 : 0.0);
+        }
+        return first && dataPoint.size() == 0;
+    }
+
+    private void summary(SummarySnapshot.SummaryDataPointSnapshot dataPoint, boolean first) {
+        startDataPoint(dataPoint.getLabels(), first, true);
+        distribution(dataPoint.hasCount() ? dataPoint.getCount() : 0L, dataPoint.hasSum() ? dataPoint.getSum() : 0.0);
+        json.append(",\"quantileValues\":[");
+        boolean firstQuantile = true;
+        for (Quantile quantile : dataPoint.getQuantiles()) {
+            if (!firstQuantile) {
+                json.append(',');
+            }
+            firstQuantile = false;
+            json.append("{\"quantile\":");
+            number(quantile.getQuantile());
+            json.append(",\"value\":");
+            number(quantile.getValue());
+            json.append('}');
+        }
+        json.append("]}");
+    }
+
+    private void histogram(HistogramSnapshot.HistogramDataPointSnapshot dataPoint, boolean first) {
+        startDataPoint(dataPoint.getLabels(), first, true);
+        distribution(dataPoint.hasCount() ? dataPoint.getCount() : 0L, dataPoint.hasSum() ? dataPoint.getSum() : 0.0);
+        if (dataPoint.hasNativeHistogramData()) {
+            json.append(",\"scale\":").append(dataPoint.getNativeSchema());
+            json.append(",\"zeroCount\":\"").append(dataPoint.getNativeZeroCount()).append('"');
+            json.append(",\"zeroThreshold\":");
+            number(dataPoint.getNativeZeroThreshold());
+            json.append(",\"positive\":");
+            exponentialBuckets(dataPoint.getNativeBucketsForPositiveValues());
+            json.append(",\"negative\":");
+            exponentialBuckets(dataPoint.getNativeBucketsForNegativeValues());
+        } else {
+            ClassicHistogramBuckets buckets = dataPoint.getClassicBuckets();
+            json.append(",\"bucketCounts\":[");
+            for (int i = 0; i < buckets.size(); i++) {
+                json.append(i > 0 ? ",\"" : "\"").append(buckets.getCount(i)).append('"');
+            }
+            // The last bucket is +Inf and has no explicit bound
+            json.append("],\"explicitBounds\":[");
+            for (int i = 0; i < buckets.size() - 1; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                number(buckets.getUpperBound(i));
+            }
+            json.append(']');
+        }
+        json.append('}');
+    }
+
+    /**
+     * Bucket i of a Prometheus native histogram covers (base^(i-1), base^i] while bucket i of an OTLP exponential
+     * histogram covers (base^i, base^(i+1)], so the offset is shifted by one. OTLP buckets are dense.
+     */
+    private void exponentialBuckets(NativeHistogramBuckets buckets) {
+        if (buckets.size() == 0) {
+            json.append("{\"offset\":0,\"bucketCounts\":[]}");
+            return;
+        }
+        int offset = buckets.getBucketIndex(0);
+        json.append("{\"offset\":").append(offset - 1).append(",\"bucketCounts\":[");
+        int next = offset;
+        for (int i = 0; i < buckets.size(); i++) {
+            for (; next < buckets.getBucketIndex(i); next++) {
+                json.append(next > offset ? ",\"0\"" : "\"0\"");
+            }
+            json.append(next > offset ? ",\"" : "\"").append(buckets.getCount(i)).append('"');
+            next++;
+        }
+        json.append("]}");
+    }
+
+    private void startDataPoint(Labels labels, boolean first, boolean cumulative) {
+        if (!first) {
+            json.append(',');
+        }
+        json.append("{\"attributes\":[");
+        for (int i = 0; i < labels.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            attribute(labels.getName(i), labels.getValue(i));
+        }
+        json.append(']');
+        if (cumulative) {
+            json.append(",\"startTimeUnixNano\":\"").append(startTimeUnixNano).append('"');
+        }
+        json.append(",\"timeUnixNano\":\"").append(timeUnixNano).append('"');
+    }
+
+    private void distribution(long count, double sum) {
+        json.append(",\"count\":\"").append(count).append("\",\"sum\":");
+        number(sum);
+    }
+
+    private void attribute(String key, String value) {
+        json.append("{\"key\":");
+        string(key);
+        json.append(",\"value\":{\"stringValue\":");
+        string(value);
+        json.append("}}");
+    }
+
+    /**
+     * The JSON mapping of protobuf encodes non finite doubles as strings
+     */
+    private void number(double value) {
+        if (Double.isNaN(value)) {
+            json.append("\"NaN\"");
+        } else if (Double.isInfinite(value)) {
+            json.append(value > 0 ? "\"Infinity\"" : "\"-Infinity\"");
+        } else {
+            json.append(value);
+        }
+    }
+
+    private void string(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static String nanos(long millis) {
+        return String.valueOf(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
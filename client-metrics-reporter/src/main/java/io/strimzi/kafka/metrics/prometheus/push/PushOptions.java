@@ -0,0 +1,88 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Options of a pusher. They are only used when the pusher is created, components pushing to the same URL share the
+ * options of the first one that started it.
+ */
+public class PushOptions {
+
+    /**
+     * The OTLP/HTTP metrics endpoint
+     */
+    public final URI url;
+    /**
+     * The interval between pushes in milliseconds, also used as the timeout of each request
+     */
+    public final long intervalMs;
+    /**
+     * The maximum number of data points per request
+     */
+    public final int batchSize;
+    /**
+     * The interval in milliseconds after which unchanged series are pushed again, 0 to only push changed series
+     */
+    public final long resendIntervalMs;
+    /**
+     * The directory where requests that could not be sent are spooled, null to drop them
+     */
+    public final Path spoolDir;
+    /**
+     * The maximum size of the spool in bytes
+     */
+    public final long spoolMaxBytes;
+    /**
+     * The maximum number of spooled requests sent on each push
+     */
+    public final int spoolReplayBatches;
+
+    /**
+     * Constructor
+     * @param url The OTLP/HTTP metrics endpoint
+     * @param intervalMs The interval between pushes in milliseconds
+     * @param batchSize The maximum number of data points per request
+     * @param resendIntervalMs The interval after which unchanged series are pushed again, 0 to only push changed series
+     */
+    public PushOptions(URI url, long intervalMs, int batchSize, long resendIntervalMs) {
+        this(url, intervalMs, batchSize, resendIntervalMs, null, 0L, 0);
+    }
+
+    /**
+     * Constructor
+     * @param url The OTLP/HTTP metrics endpoint
+     * @param intervalMs The interval between pushes in milliseconds
+     * @param batchSize The maximum number of data points per request
+     * @param resendIntervalMs The interval after which unchanged series are pushed again, 0 to only push changed series
+     * @param spoolDir The directory where requests that could not be sent are spooled, null to drop them
+     * @param spoolMaxBytes The maximum size of the spool in bytes
+     * @param spoolReplayBatches The maximum number of spooled requests sent on each push
+     */
+    public PushOptions(URI url, long intervalMs, int batchSize, long resendIntervalMs, Path spoolDir, long spoolMaxBytes, int spoolReplayBatches) {
+        this.url = url;
+        this.intervalMs = intervalMs;
+        this.batchSize = batchSize;
+        this.resendIntervalMs = resendIntervalMs;
+        this.spoolDir = spoolDir;
+        this.spoolMaxBytes = spoolMaxBytes;
+        this.spoolReplayBatches = spoolReplayBatches;
+    }
+
+    @Override
+    public String toString() {
+        return "PushOptions{" +
+                "url=" + url +
+                ", intervalMs=" + intervalMs +
+                ", batchSize=" + batchSize +
+                ", resendIntervalMs=" + resendIntervalMs +
+                ", spoolDir=" + spoolDir +
+                ", spoolMaxBytes=" + spoolMaxBytes +
+                ", spoolReplayBatches=" + spoolReplayBatches +
+                '}';
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to keep track of all the pushers started by all the Kafka components in a JVM.
+ */
+public class Pushers {
+
+    private final static Logger LOG = LoggerFactory.getLogger(Pushers.class);
+    private static final Map<URI, PusherCounter> PUSHERS = new HashMap<>();
+
+    private Pushers() {
+        // utility class that shouldn't be instantiated
+    }
+
+    /**
+     * Get or create a new pusher if there isn't an existing instance for the URL of the options.
+     * @param registry The Prometheus registry to push
+     * @param options The options of the pusher. This is only used if a new pusher is created.
+     * @return A PusherCounter instance
+     */
+    public synchronized static PusherCounter getOrCreate(PrometheusRegistry registry, PushOptions options) {
+        PusherCounter pusherCounter = PUSHERS.get(options.url);
+        if (pusherCounter == null) {
+            pusherCounter = new PusherCounter(registry, options);
+            pusherCounter.start();
+            PUSHERS.put(options.url, pusherCounter);
+        }
+        pusherCounter.count.incrementAndGet();
+        return pusherCounter;
+    }
+
+    /**
+     * Release a pusher instance. If no other components hold this instance, it is stopped.
+     * @param pusherCounter The pusher instance to release
+     */
+    public synchronized static void release(PusherCounter pusherCounter) {
+        if (pusherCounter.close()) {
+            PUSHERS.remove(pusherCounter.options.url);
+        }
+    }
+
+    /**
+     * The attributes identifying the process pushing metrics, so receivers can tell apart the series of each process
+     * like Prometheus does with the instance label when scraping.
+     */
+    private static Map<String, String> resourceAttributes() {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("service.name", "kafka");
+        try {
+            attributes.put("host.name", InetAddress.getLocalHost().getHostName());
+        } catch (UnknownHostException e) {
+            LOG.debug("Unable to retrieve the host name", e);
+        }
+        attributes.put("process.pid", String.valueOf(ProcessHandle.current().pid()));
+        return attributes;
+    }
+
+    /**
+     * Class used to keep track of the pusher of a URL.
+     */
+    public static class PusherCounter {
+        private final PrometheusRegistry registry;
+        private final PushOptions options;
+        private final AtomicInteger count;
+        private ScheduledExecutorService executor;
+        private Spool spool;
+
+        private PusherCounter(PrometheusRegistry registry, PushOptions options) {
+            this.registry = registry;
+            this.options = options;
+            this.count = new AtomicInteger();
+        }
+
+        private void start() {
+            if (options.spoolDir != null) {
+                try {
+                    spool = Spool.open(options.spoolDir, options.spoolMaxBytes);
+                } catch (IOException e) {
+                    LOG.error("Failed opening spool {}", options.spoolDir, e);
+                    throw new RuntimeException(e);
+                }
+            }
+            DeltaPusher pusher = new DeltaPusher(options, registry, resourceAttributes(), spool);
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "prometheus-push");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(pusher, options.intervalMs, options.intervalMs, TimeUnit.MILLISECONDS);
+            LOG.debug("Started pushing metrics with {}", options);
+        }
+
+        private synchronized boolean close() {
+            int remaining = count.decrementAndGet();
+            if (remaining == 0) {
+                executor.shutdownNow();
+                if (spool != null) {
+                    // Releases the spool directory so a new pusher can use it
+                    spool.close();
+                }
+                LOG.debug("Stopped pushing metrics to {}", options.url);
+                return true;
+            }
+            return false;
+        }
+    }
+}
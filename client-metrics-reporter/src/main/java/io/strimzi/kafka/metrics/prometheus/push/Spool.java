@@ -0,0 +1,359 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Bounded on-disk queue of the push requests that could not be sent. Requests are appended to memory-mapped segment
+ * files of a fixed size so they don't use heap and survive restarts. When the size cap is reached, the oldest
+ * segment is evicted. Each segment starts with a header holding its write and read positions, followed by records
+ * made of their length, CRC32 and bytes. Records that don't match their CRC, for example after a crash while writing,
+ * and the records after them in the same segment are skipped. The directory is locked so only one spool uses it.
+ * Closing the spool releases the lock and the segments, which are unmapped once garbage collected.
+ */
+class Spool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Spool.class);
+    private static final String SUFFIX = ".spool";
+    private static final String LOCK_FILE = "spool.lock";
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    private static final int MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    private final Path dir;
+    private final FileLock lock;
+    private final int segmentBytes;
+    private final int maxSegments;
+    // Oldest first, only the last segment is written to
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence;
+    private boolean closed;
+
+    private Spool(Path dir, FileLock lock, long maxBytes) {
+        this.dir = dir;
+        this.lock = lock;
+        this.segmentBytes = (int) Math.min(Math.max(maxBytes / 4, MIN_SEGMENT_BYTES), MAX_SEGMENT_BYTES);
+        this.maxSegments = (int) Math.max(maxBytes / segmentBytes, 1);
+    }
+
+    /**
+     * Open a spool, keeping the requests spooled by a previous process
+     * @param dir The directory of the segment files
+     * @param maxBytes The maximum size of the segment files
+     * @return The spool
+     * @throws IOException if the directory or the segment files cannot be accessed, or if the directory is used by
+     *                     another spool
+     */
+    static Spool open(Path dir, long maxBytes) throws IOException {
+        Files.createDirectories(dir);
+        FileLock lock = lock(dir);
+        Spool spool = new Spool(dir, lock, maxBytes);
+        try {
+            spool.load();
+        } catch (IOException | RuntimeException e) {
+            spool.close();
+            throw e;
+        }
+        return spool;
+    }
+
+    private static FileLock lock(Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Already locked by this JVM
+            lock = null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Spool directory " + dir + " is already used by another reporter");
+        }
+        return lock;
+    }
+
+    private synchronized void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.filter(path -> String.valueOf(path.getFileName()).endsWith(SUFFIX)).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            long size = Files.size(file);
+            if (size < HEADER_BYTES) {
+                // Created by a process that crashed before writing the header
+                delete(file);
+                continue;
+            }
+            Segment segment = Segment.open(file, (int) Math.min(size, Integer.MAX_VALUE));
+            if (segment.isFullyRead()) {
+                delete(file);
+            } else {
+                segments.addLast(segment);
+            }
+            nextSequence = Math.max(nextSequence, sequence(file) + 1);
+        }
+        if (!segments.isEmpty()) {
+            LOG.info("Found {} segments of spooled push requests in {}", segments.size(), dir);
+        }
+    }
+
+    /**
+     * Append a request, evicting the oldest segment if the spool is full
+     * @param record The request
+     * @return true if the request was stored, false if it was dropped
+     * @throws IOException if a new segment file cannot be created
+     */
+    synchronized boolean append(byte[] record) throws IOException {
+        if (closed) {
+            return false;
+        }
+        if (RECORD_HEADER_BYTES + record.length > segmentBytes - HEADER_BYTES) {
+            LOG.warn("Dropping push request of {} bytes as it is larger than the spool segments of {} bytes", record.length, segmentBytes);
+            return false;
+        }
+        Segment last = segments.peekLast();
+        if (last != null && last.append(record)) {
+            return true;
+        }
+        if (segments.size() >= maxSegments) {
+            Segment evicted = segments.removeFirst();
+            LOG.warn("Spool {} is full, dropping the oldest push requests", dir);
+            delete(evicted.path);
+        }
+        Path path = dir.resolve(String.format("%020d%s", nextSequence++, SUFFIX));
+        Segment segment = Segment.open(path, segmentBytes);
+        segments.addLast(segment);
+        return segment.append(record);
+    }
+
+    /**
+     * Retrieve the oldest request without removing it
+     * @return The request, or empty if the spool is empty
+     */
+    synchronized Optional<byte[]> peek() {
+        while (!segments.isEmpty()) {
+            // Corrupted records are skipped by marking the rest of their segment as read
+            Optional<byte[]> record = segments.peekFirst().peek();
+            if (record.isPresent() || segments.size() == 1) {
+                return record;
+            }
+            delete(segments.removeFirst().path);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Remove the oldest request
+     */
+    synchronized void remove() {
+        Segment first = segments.peekFirst();
+        if (first == null) {
+            return;
+        }
+        first.advance();
+        if (first.isFullyRead() && segments.size() > 1) {
+            delete(segments.removeFirst().path);
+        }
+    }
+
+    /**
+     * Whether all the spooled requests were removed
+     * @return true if the spool is empty, otherwise false
+     */
+    synchronized boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (!segment.isFullyRead()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The number of segment files
+     * @return The number of segments
+     */
+    synchronized int segments() {
+        return segments.size();
+    }
+
+    /**
+     * Close the spool, releasing the lock of its directory. The spooled requests are kept for the next process.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.clear();
+        try {
+            lock.channel().close();
+        } catch (IOException e) {
+            LOG.warn("Failed releasing the lock of spool {}", dir, e);
+        }
+    }
+
+    private static long sequence(Path file) {
+        String name = String.valueOf(file.getFileName());
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Failed deleting spool segment {}", path, e);
+        }
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, int size) throws IOException {
+            boolean created = !Files.exists(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                Segment segment = new Segment(path, buffer);
+                if (!created && !segment.hasValidHeader()) {
+                    LOG.warn("Dropping spool segment {} as its header is corrupted", path);
+                }
+                if (created || !segment.hasValidHeader()) {
+                    buffer.putInt(0, HEADER_BYTES);
+                    buffer.putInt(Integer.BYTES, HEADER_BYTES);
+                    buffer.force();
+                }
+                return segment;
+            }
+        }
+
+        private boolean hasValidHeader() {
+            int write = writePosition();
+            int read = readPosition();
+            return write >= HEADER_BYTES && write <= buffer.capacity() && read >= HEADER_BYTES && read <= write;
+        }
+
+        private int writePosition() {
+            return buffer.getInt(0);
+        }
+
+        private int readPosition() {
+            return buffer.getInt(Integer.BYTES);
+        }
+
+        boolean append(byte[] record) {
+            int position = writePosition();
+            if ((long) position + RECORD_HEADER_BYTES + record.length > buffer.capacity()) {
+                return false;
+            }
+            buffer.putInt(position, record.length);
+            buffer.putInt(position + Integer.BYTES, crc(record));
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + RECORD_HEADER_BYTES);
+            view.put(record);
+            buffer.putInt(0, position + RECORD_HEADER_BYTES + record.length);
+            buffer.force();
+            return true;
+        }
+
+        Optional<byte[]> peek() {
+            int position = readPosition();
+            if (position >= writePosition()) {
+                return Optional.empty();
+            }
+            int length = recordLength(position);
+            if (length < 0) {
+                return corrupted();
+            }
+            byte[] record = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + RECORD_HEADER_BYTES);
+            view.get(record);
+            if (crc(record) != buffer.getInt(position + Integer.BYTES)) {
+                return corrupted();
+            }
+            return Optional.of(record);
+        }
+
+        /**
+         * Skip the rest of the segment as the positions of the next records can't be trusted
+         */
+        private Optional<byte[]> corrupted() {
+            LOG.warn("Skipping the corrupted records of spool segment {} from position {}", path, readPosition());
+            buffer.putInt(Integer.BYTES, writePosition());
+            buffer.force();
+            return Optional.empty();
+        }
+
+        void advance() {
+            int position = readPosition();
+            if (position >= writePosition()) {
+                return;
+            }
+            int length = recordLength(position);
+            if (length < 0) {
+                corrupted();
+                return;
+            }
+            buffer.putInt(Integer.BYTES, position + RECORD_HEADER_BYTES + length);
+            buffer.force();
+        }
+
+        /**
+         * The length of the record at a position, or -1 if the record doesn't fit before the write position
+         */
+        private int recordLength(int position) {
+            int write = writePosition();
+            if (position + RECORD_HEADER_BYTES > write) {
+                return -1;
+            }
+            int length = buffer.getInt(position);
+            return length >= 0 && (long) position + RECORD_HEADER_BYTES + length <= write ? length : -1;
+        }
+
+        boolean isFullyRead() {
+            return readPosition() >= writePosition();
+        }
+
+        private static int crc(byte[] record) {
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, record.length);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -5,20 +5,41 @@
 package io.strimzi.kafka.metrics.prometheus;
 
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.strimzi.kafka.metrics.prometheus.http.ExpositionFormat;
 import io.strimzi.kafka.metrics.prometheus.http.HttpServers;
+import io.strimzi.kafka.metrics.prometheus.http.ListenerOptions;
+import io.strimzi.kafka.metrics.prometheus.push.PushOptions;
 import org.apache.kafka.common.config.ConfigException;
 import org.junit.jupiter.api.Test;
 
 import java.net.BindException;
+import java.net.URI;
 import java.util.Map;
 import java.util.Optional;
 
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.ADDITIVE_GAUGES_CONFIG;
 import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.ALLOWLIST_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.COLLECTION_INTERVAL_MS_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.DENYLIST_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LABELS_DROP_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LABELS_KEEP_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_CACHE_ENABLE_CONFIG;
 import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_CONFIG;
 import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_ENABLE_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_FORMAT_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_STREAMING_ENABLE_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.PUSH_BATCH_SIZE_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.PUSH_URL_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.SCRAPE_CACHE_MS_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.SERIES_LIMIT_ACTION_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.SERIES_LIMIT_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.SERIES_LIMIT_PER_FAMILY_CONFIG;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -30,16 +51,25 @@ public class ClientMetricsReporterConfigTest {
         ClientMetricsReporterConfig config = new ClientMetricsReporterConfig(Map.of(), new PrometheusRegistry());
         assertEquals(ClientMetricsReporterConfig.LISTENER_CONFIG_DEFAULT, config.listener());
         assertTrue(config.isAllowed("random_name"));
+        assertEquals(ClientMetricsReporterConfig.SCRAPE_CACHE_MS_CONFIG_DEFAULT, config.scrapeCacheMs());
+        assertEquals(ClientMetricsReporterConfig.COLLECTION_INTERVAL_MS_CONFIG_DEFAULT, config.collectionIntervalMs());
+        assertEquals(0L, config.listenerCacheMs());
     }
 
     @Test
     public void testOverrides() {
         Map<String, String> props = Map.of(
             LISTENER_CONFIG, "http://:0",
-            ALLOWLIST_CONFIG, "kafka_server.*");
+            ALLOWLIST_CONFIG, "kafka_server.*",
+            SCRAPE_CACHE_MS_CONFIG, "5000",
+            COLLECTION_INTERVAL_MS_CONFIG, "10000",
+            LISTENER_CACHE_ENABLE_CONFIG, "true");
         ClientMetricsReporterConfig config = new ClientMetricsReporterConfig(props, new PrometheusRegistry());
 
         assertEquals("http://:0", config.listener());
+        assertEquals(5000L, config.scrapeCacheMs());
+        assertEquals(10000L, config.collectionIntervalMs());
+        assertEquals(10000L, config.listenerCacheMs());
         assertFalse(config.isAllowed("random_name"));
         assertTrue(config.isAllowed("kafka_server_metric"));
     }
@@ -62,6 +92,111 @@ public class ClientMetricsReporterConfigTest {
                 () -> new ClientMetricsReporterConfig(Map.of(ALLOWLIST_CONFIG, "hello\\,world"), null));
     }
 
+    @Test
+    public void testDenyList() {
+        Map<String, String> props = Map.of(
+            ALLOWLIST_CONFIG, "kafka_server.*",
+            DENYLIST_CONFIG, "kafka_server_log.*,kafka_server_replica_fetcher_metric");
+        ClientMetricsReporterConfig config = new ClientMetricsReporterConfig(props, new PrometheusRegistry());
+
+        assertTrue(config.isAllowed("kafka_server_metric"));
+        assertFalse(config.isAllowed("kafka_server_log_size"));
+        assertFalse(config.isAllowed("kafka_server_replica_fetcher_metric"));
+        assertTrue(config.isAllowed("kafka_server_replica_fetcher_metric_total"));
+
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(DENYLIST_CONFIG, "hell[o,s]world"), null));
+    }
+
+    @Test
+    public void testLabelFilter() {
+        Map<String, String> props = Map.of(
+            LABELS_DROP_CONFIG, "kafka_consumer_.*=partition;topic",
+            ADDITIVE_GAUGES_CONFIG, ".*_total");
+        ClientMetricsReporterConfig config = new ClientMetricsReporterConfig(props, new PrometheusRegistry());
+
+        assertFalse(config.labelFilter().forMetric("kafka_consumer_metric").keeps("partition"));
+        assertTrue(config.labelFilter().forMetric("kafka_consumer_metric").keeps("client_id"));
+        assertTrue(config.labelFilter().isAdditive("kafka_consumer_metric_total"));
+
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(LABELS_DROP_CONFIG, "partition"), null));
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(LABELS_KEEP_CONFIG, "hell[o=partition"), null));
+    }
+
+    @Test
+    public void testSeriesLimits() {
+        ClientMetricsReporterConfig config = new ClientMetricsReporterConfig(Map.of(), new PrometheusRegistry());
+        assertFalse(config.seriesLimits().isEnabled());
+
+        Map<String, String> props = Map.of(
+            SERIES_LIMIT_CONFIG, "10",
+            SERIES_LIMIT_PER_FAMILY_CONFIG, "2",
+            SERIES_LIMIT_ACTION_CONFIG, "overflow");
+        config = new ClientMetricsReporterConfig(props, new PrometheusRegistry());
+        assertTrue(config.seriesLimits().isEnabled());
+        assertTrue(config.seriesLimits().overflow());
+        assertFalse(config.seriesLimits().isExceeded(9, 1));
+        assertTrue(config.seriesLimits().isExceeded(10, 1));
+        assertTrue(config.seriesLimits().isExceeded(9, 2));
+
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(SERIES_LIMIT_ACTION_CONFIG, "truncate"), null));
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(SERIES_LIMIT_CONFIG, "-1"), null));
+    }
+
+    @Test
+    public void testListenerOptions() {
+        ListenerOptions options = new ClientMetricsReporterConfig(Map.of(), new PrometheusRegistry()).listenerOptions();
+        assertEquals(ExpositionFormat.AUTO, options.format);
+        assertFalse(options.streaming);
+        assertFalse(options.virtualThreads);
+        assertEquals(0, options.maxInflightRequests);
+
+        Map<String, String> props = Map.of(
+            LISTENER_FORMAT_CONFIG, "protobuf",
+            LISTENER_STREAMING_ENABLE_CONFIG, "true",
+            LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG, "true",
+            LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG, "5");
+        options = new ClientMetricsReporterConfig(props, new PrometheusRegistry()).listenerOptions();
+        assertEquals(ExpositionFormat.PROTOBUF, options.format);
+        assertTrue(options.streaming);
+        assertTrue(options.virtualThreads);
+        assertEquals(5, options.maxInflightRequests);
+
+        // With virtual threads, in-flight requests are limited by default
+        options = new ClientMetricsReporterConfig(Map.of(LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG, "true"), new PrometheusRegistry()).listenerOptions();
+        assertEquals(ClientMetricsReporterConfig.LISTENER_MAX_INFLIGHT_REQUESTS_VIRTUAL_THREADS_DEFAULT, options.maxInflightRequests);
+        options = new ClientMetricsReporterConfig(Map.of(LISTENER_VIRTUAL_THREADS_ENABLE_CONFIG, "true", LISTENER_MAX_INFLIGHT_REQUESTS_CONFIG, "0"), new PrometheusRegistry()).listenerOptions();
+        assertEquals(0, options.maxInflightRequests);
+
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(LISTENER_FORMAT_CONFIG, "json"), null));
+    }
+
+    @Test
+    public void testPushOptions() {
+        ClientMetricsReporterConfig config = new ClientMetricsReporterConfig(Map.of(), new PrometheusRegistry());
+        assertNull(config.pushOptions());
+        assertEquals(Optional.empty(), config.startPusher());
+
+        Map<String, String> props = Map.of(
+            PUSH_URL_CONFIG, "http://localhost:4318/v1/metrics",
+            PUSH_BATCH_SIZE_CONFIG, "100");
+        PushOptions options = new ClientMetricsReporterConfig(props, new PrometheusRegistry()).pushOptions();
+        assertEquals(URI.create("http://localhost:4318/v1/metrics"), options.url);
+        assertEquals(100, options.batchSize);
+        assertEquals(30_000L, options.intervalMs);
+        assertEquals(120_000L, options.resendIntervalMs);
+
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(PUSH_URL_CONFIG, "localhost:4318"), null));
+        assertThrows(ConfigException.class,
+                () -> new ClientMetricsReporterConfig(Map.of(PUSH_URL_CONFIG, "http://local host"), null));
+    }
+
     @Test
     public void testIsListenerEnabled() {
         Map<String, String> props = Map.of(
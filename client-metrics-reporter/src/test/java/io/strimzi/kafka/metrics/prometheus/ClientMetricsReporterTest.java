@@ -30,6 +30,7 @@ public class ClientMetricsReporterTest {
     static final Map<String, String> LABELS = Map.of("key", "value");
     Map<String, String> configs;
     PrometheusRegistry registry;
+    PrometheusCollector prometheusCollector;
     KafkaCollector kafkaCollector;
 
     @BeforeEach
@@ -37,14 +38,14 @@ public class ClientMetricsReporterTest {
         configs = new HashMap<>();
         configs.put(ClientMetricsReporterConfig.LISTENER_CONFIG, "http://:0");
         registry = new PrometheusRegistry();
-        PrometheusCollector prometheusCollector = new PrometheusCollector();
+        prometheusCollector = new PrometheusCollector();
         kafkaCollector = new KafkaCollector(prometheusCollector);
         registry.register(prometheusCollector);
     }
 
     @Test
     public void testLifeCycle() {
-        ClientMetricsReporter reporter = new ClientMetricsReporter(registry, kafkaCollector);
+        ClientMetricsReporter reporter = new ClientMetricsReporter(registry, prometheusCollector, kafkaCollector);
         configs.put(ClientMetricsReporterConfig.ALLOWLIST_CONFIG, "kafka_producer_group_name.*");
         reporter.configure(configs);
         reporter.contextChange(new KafkaMetricsContext("kafka.producer"));
@@ -80,14 +81,14 @@ public class ClientMetricsReporterTest {
 
     @Test
     public void testMultipleReporters() {
-        ClientMetricsReporter reporter1 = new ClientMetricsReporter(registry, kafkaCollector);
+        ClientMetricsReporter reporter1 = new ClientMetricsReporter(registry, prometheusCollector, kafkaCollector);
         reporter1.configure(configs);
         reporter1.contextChange(new KafkaMetricsContext("kafka.producer"));
         Optional<Integer> port1 = reporter1.getPort();
         assertTrue(port1.isPresent());
         assertEquals(0, getMetrics(port1.get()).size());
 
-        ClientMetricsReporter reporter2 = new ClientMetricsReporter(registry, kafkaCollector);
+        ClientMetricsReporter reporter2 = new ClientMetricsReporter(registry, prometheusCollector, kafkaCollector);
         reporter2.configure(configs);
         reporter2.contextChange(new KafkaMetricsContext("kafka.producer"));
         Optional<Integer> port2 = reporter2.getPort();
@@ -112,14 +113,14 @@ public class ClientMetricsReporterTest {
 
     @Test
     public void testReconfigurableConfigs() {
-        try (ClientMetricsReporter reporter = new ClientMetricsReporter(registry, kafkaCollector)) {
+        try (ClientMetricsReporter reporter = new ClientMetricsReporter(registry, prometheusCollector, kafkaCollector)) {
             assertTrue(reporter.reconfigurableConfigs().isEmpty());
         }
     }
 
     @Test
     public void testContextChange() {
-        try (ClientMetricsReporter reporter = new ClientMetricsReporter(registry, kafkaCollector)) {
+        try (ClientMetricsReporter reporter = new ClientMetricsReporter(registry, prometheusCollector, kafkaCollector)) {
             for (String prefix : PREFIXES) {
                 reporter.contextChange(new KafkaMetricsContext(prefix));
             }
@@ -129,7 +130,7 @@ public class ClientMetricsReporterTest {
 
     @Test
     public void testHelpMessageInOutput() throws Exception {
-        ClientMetricsReporter reporter = new ClientMetricsReporter(registry, kafkaCollector);
+        ClientMetricsReporter reporter = new ClientMetricsReporter(registry, prometheusCollector, kafkaCollector);
         configs.put(ClientMetricsReporterConfig.ALLOWLIST_CONFIG, "kafka_producer_group_name.*");
         reporter.configure(configs);
         reporter.contextChange(new KafkaMetricsContext("kafka.producer"));
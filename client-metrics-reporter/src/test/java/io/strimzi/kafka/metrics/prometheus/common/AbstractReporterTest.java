@@ -4,18 +4,22 @@
  */
 package io.strimzi.kafka.metrics.prometheus.common;
 
+import io.prometheus.metrics.model.snapshots.Labels;
 import org.junit.jupiter.api.Test;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AbstractReporterTest {
 
     @Test
     public void testAllowedMetricsNotReconfigurable() {
-        Pattern pattern = Pattern.compile("pattern_.*");
+        MetricNameMatcher pattern = MetricNameMatcher.compile(List.of("pattern_.*"));
         TestReporter reporter = new TestReporter(pattern, false);
         reporter.addMetric("pattern_metric", new MetricWrapper(null, null, null, null) {
             @Override
@@ -33,7 +37,7 @@ public class AbstractReporterTest {
         });
         assertEquals(1, reporter.allowedMetrics().size());
 
-        reporter.allowlist = Pattern.compile("(pattern_.*)|(pattern2_.*)");
+        reporter.allowlist = MetricNameMatcher.compile(List.of("pattern_.*", "pattern2_.*"));
         reporter.updateAllowedMetrics();
         assertEquals(1, reporter.allowedMetrics().size());
 
@@ -43,7 +47,7 @@ public class AbstractReporterTest {
 
     @Test
     public void testAllowedMetricsReconfigurable() {
-        Pattern pattern = Pattern.compile("pattern_.*");
+        MetricNameMatcher pattern = MetricNameMatcher.compile(List.of("pattern_.*"));
         TestReporter reporter = new TestReporter(pattern, true);
         reporter.addMetric("pattern_metric", new MetricWrapper(null, null, null, null) {
             @Override
@@ -61,7 +65,7 @@ public class AbstractReporterTest {
         });
         assertEquals(1, reporter.allowedMetrics().size());
 
-        reporter.allowlist = Pattern.compile("(pattern_.*)|(pattern2_.*)");
+        reporter.allowlist = MetricNameMatcher.compile(List.of("pattern_.*", "pattern2_.*"));
         reporter.updateAllowedMetrics();
         assertEquals(2, reporter.allowedMetrics().size());
 
@@ -71,24 +75,292 @@ public class AbstractReporterTest {
         assertTrue(reporter.allowedMetrics().isEmpty());
     }
 
+    @Test
+    public void testAllowedFamilies() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of("pattern_.*")), true);
+        reporter.addMetric("pattern_metric_1", new TestMetricWrapper("pattern_metric"));
+        reporter.addMetric("pattern_metric_2", new TestMetricWrapper("pattern_metric"));
+        reporter.addMetric("pattern2_metric", new TestMetricWrapper("pattern2_metric"));
+        assertEquals(1, reporter.allowedFamilies().size());
+        MetricFamily family = reporter.allowedFamilies().iterator().next();
+        assertEquals("pattern_metric", family.name());
+        assertEquals("Use pattern_metric in allowlist", family.help());
+        assertEquals(2, family.size());
+
+        reporter.allowlist = MetricNameMatcher.compile(List.of("pattern_.*", "pattern2_.*"));
+        reporter.updateAllowedMetrics();
+        assertEquals(2, reporter.allowedFamilies().size());
+
+        reporter.removeMetric("pattern_metric_1");
+        assertEquals(1, family.size());
+        reporter.removeMetric("pattern_metric_2");
+        assertEquals(1, reporter.allowedFamilies().size());
+
+        reporter.allowlist = MetricNameMatcher.compile(List.of("pattern_.*"));
+        reporter.updateAllowedMetrics();
+        assertTrue(reporter.allowedFamilies().isEmpty());
+    }
+
+    @Test
+    public void testDeniedMetrics() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of("pattern.*")), true);
+        reporter.denylist = MetricNameMatcher.compile(List.of("pattern_partition.*"));
+        reporter.addMetric("pattern_metric", new TestMetricWrapper("pattern_metric"));
+        reporter.addMetric("pattern_partition_metric", new TestMetricWrapper("pattern_partition_metric"));
+        assertEquals(1, reporter.allowedMetrics().size());
+        assertEquals("pattern_metric", reporter.allowedMetrics().iterator().next().prometheusName());
+
+        reporter.denylist = MetricNameMatcher.compile(List.of("pattern_metric"));
+        reporter.updateAllowedMetrics();
+        assertEquals(1, reporter.allowedMetrics().size());
+        assertEquals("pattern_partition_metric", reporter.allowedMetrics().iterator().next().prometheusName());
+
+        reporter.denylist = MetricNameMatcher.compile(List.of());
+        reporter.updateAllowedMetrics();
+        assertEquals(2, reporter.allowedMetrics().size());
+    }
+
+    @Test
+    public void testSeriesLimitsDrop() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of(".*")), false);
+        reporter.seriesLimits = SeriesLimits.create(3, 2, false);
+        assertTrue(reporter.hasSeriesLimits());
+        reporter.addMetric("metric_a_1", new TestMetricWrapper("metric_a", Labels.of("k", "1")));
+        reporter.addMetric("metric_a_2", new TestMetricWrapper("metric_a", Labels.of("k", "2")));
+        reporter.addMetric("metric_a_3", new TestMetricWrapper("metric_a", Labels.of("k", "3")));
+        assertEquals(2, reporter.allowedMetrics().size());
+        assertEquals(1, reporter.rejectedSeries());
+
+        reporter.addMetric("metric_b_1", new TestMetricWrapper("metric_b", Labels.of("k", "1")));
+        reporter.addMetric("metric_c_1", new TestMetricWrapper("metric_c", Labels.of("k", "1")));
+        assertEquals(3, reporter.allowedMetrics().size());
+        assertEquals(2, reporter.rejectedSeries());
+
+        // Updating an allowed metric does not count against the limits
+        reporter.addMetric("metric_b_1", new TestMetricWrapper("metric_b", Labels.of("k", "1")));
+        assertEquals(3, reporter.allowedMetrics().size());
+        assertEquals(2, reporter.rejectedSeries());
+
+        reporter.removeMetric("metric_b_1");
+        reporter.addMetric("metric_c_1", new TestMetricWrapper("metric_c", Labels.of("k", "1")));
+        assertEquals(3, reporter.allowedMetrics().size());
+        assertEquals(2, reporter.rejectedSeries());
+    }
+
+    @Test
+    public void testSeriesLimitsOverflow() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of(".*")), false);
+        reporter.seriesLimits = SeriesLimits.create(0, 1, true);
+        for (int i = 0; i < 3; i++) {
+            reporter.addMetric("metric_" + i, new TestMetricWrapper("metric", Labels.of("k", String.valueOf(i))));
+        }
+        assertEquals(3, reporter.allowedMetrics().size());
+        assertEquals(2, reporter.rejectedSeries());
+
+        MetricFamily family = reporter.allowedFamilies().iterator().next();
+        assertEquals(1, family.sizeWithinLimits());
+        assertTrue(family.hasCollisions());
+        assertEquals(2, family.series().size());
+        assertTrue(family.metrics().stream().anyMatch(m -> m.labels().equals(Labels.of("overflow", "true"))));
+
+        // Metrics folded into the overflow series stay there when updated
+        reporter.addMetric("metric_2", new TestMetricWrapper("metric", Labels.of("k", "2")));
+        assertEquals(1, family.sizeWithinLimits());
+
+        reporter.removeMetric("metric_1");
+        reporter.removeMetric("metric_2");
+        assertFalse(family.hasCollisions());
+        assertEquals(1, family.series().size());
+    }
+
+    @Test
+    public void testCollisionsOnlyTrackedWithLabelRules() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of(".*")), false);
+        reporter.labelFilter = LabelFilter.create(List.of("filtered_.*=k"), List.of(), List.of());
+        for (int i = 0; i < 2; i++) {
+            reporter.addMetric("filtered_" + i, new TestMetricWrapper("filtered_metric", Labels.EMPTY));
+            reporter.addMetric("other_" + i, new TestMetricWrapper("other_metric", Labels.EMPTY));
+        }
+        for (MetricFamily family : reporter.allowedFamilies()) {
+            assertEquals(family.name().equals("filtered_metric"), family.hasCollisions());
+        }
+    }
+
+    @Test
+    public void testNoSeriesLimits() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of(".*")), false);
+        assertFalse(reporter.hasSeriesLimits());
+        for (int i = 0; i < 100; i++) {
+            reporter.addMetric("metric_" + i, new TestMetricWrapper("metric", Labels.of("k", String.valueOf(i))));
+        }
+        assertEquals(100, reporter.allowedMetrics().size());
+        assertEquals(0, reporter.rejectedSeries());
+    }
+
+    @Test
+    public void testLazyDisallowedMetrics() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of("pattern_.*")), true);
+        reporter.addMetric("key_1", "pattern_metric", "pattern_metric");
+        reporter.addMetric("key_2", "other_metric", "other_metric");
+        assertEquals(1, reporter.allowedMetrics().size());
+        // Only the allowed metric has a wrapper
+        assertEquals(List.of("key_1"), reporter.wrappersBuilt);
+
+        // The rejected metric gets its wrapper once the allowlist changes to allow it
+        reporter.allowlist = MetricNameMatcher.compile(List.of("pattern_.*", "other_.*"));
+        reporter.updateAllowedMetrics();
+        assertEquals(2, reporter.allowedMetrics().size());
+        assertEquals(List.of("key_1", "key_2"), reporter.wrappersBuilt);
+        assertEquals(2, reporter.allowedFamilies().size());
+
+        // Wrappers are kept when metrics are disallowed again
+        reporter.allowlist = MetricNameMatcher.compile(List.of("pattern_.*"));
+        reporter.updateAllowedMetrics();
+        assertEquals(1, reporter.allowedMetrics().size());
+        reporter.allowlist = MetricNameMatcher.compile(List.of("other_.*"));
+        reporter.updateAllowedMetrics();
+        assertEquals(1, reporter.allowedMetrics().size());
+        assertEquals("other_metric", reporter.allowedMetrics().iterator().next().prometheusName());
+        assertEquals(List.of("key_1", "key_2"), reporter.wrappersBuilt);
+
+        reporter.removeMetric("key_1");
+        reporter.removeMetric("key_2");
+        reporter.allowlist = MetricNameMatcher.compile(List.of(".*"));
+        reporter.updateAllowedMetrics();
+        assertTrue(reporter.allowedMetrics().isEmpty());
+    }
+
+    @Test
+    public void testRejectedMetricsNotReconfigurable() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of("pattern_.*")), false);
+        reporter.addMetric("key_1", "other_metric", "other_metric");
+        assertTrue(reporter.allowedMetrics().isEmpty());
+        assertTrue(reporter.wrappersBuilt.isEmpty());
+
+        // Reporters that are not reconfigurable don't keep the rejected metrics
+        reporter.allowlist = MetricNameMatcher.compile(List.of(".*"));
+        reporter.updateAllowedMetrics();
+        assertTrue(reporter.allowedMetrics().isEmpty());
+        assertTrue(reporter.wrappersBuilt.isEmpty());
+    }
+
+    @Test
+    public void testUpdateAllowedFamilies() {
+        TestReporter reporter = new TestReporter(MetricNameMatcher.compile(List.of("pattern_.*")), true);
+        for (int i = 0; i < 100; i++) {
+            reporter.addMetric("pattern_" + i, "pattern_metric", "pattern_metric");
+            reporter.addMetric("other_" + i, "other_metric", "other_metric");
+        }
+        assertEquals(100, reporter.allowedMetrics().size());
+
+        // The allowlist is evaluated once per family
+        reporter.allowlistEvaluations = 0;
+        reporter.allowlist = MetricNameMatcher.compile(List.of("other_.*"));
+        reporter.updateAllowedMetrics();
+        assertEquals(100, reporter.allowedMetrics().size());
+        assertEquals(1, reporter.allowedFamilies().size());
+        assertEquals("other_metric", reporter.allowedFamilies().iterator().next().name());
+        assertEquals(2, reporter.allowlistEvaluations);
+
+        // Metrics are removed from their disallowed family
+        for (int i = 0; i < 50; i++) {
+            reporter.removeMetric("pattern_" + i, "pattern_metric");
+        }
+        reporter.removeMetric("pattern_50");
+        reporter.allowlist = MetricNameMatcher.compile(List.of(".*"));
+        reporter.updateAllowedMetrics();
+        assertEquals(149, reporter.allowedMetrics().size());
+        assertEquals(2, reporter.allowedFamilies().size());
+    }
+
+    @Test
+    public void testFamilyIndex() {
+        FamilyIndex index = new FamilyIndex();
+        TestReporter reporter1 = new TestReporter(MetricNameMatcher.compile(List.of("pattern_.*")), true);
+        TestReporter reporter2 = new TestReporter(MetricNameMatcher.compile(List.of("pattern_.*")), true);
+        reporter1.addMetric("pattern_metric_1", new TestMetricWrapper("pattern_metric", Labels.of("k", "1")));
+        index.attach(reporter1);
+        index.attach(reporter2);
+        assertEquals(1, index.families().size());
+
+        // Families with the same name are grouped, new names are added
+        reporter2.addMetric("pattern_metric_2", new TestMetricWrapper("pattern_metric", Labels.of("k", "2")));
+        reporter2.addMetric("pattern_other", new TestMetricWrapper("pattern_other"));
+        assertEquals(2, index.families().size());
+        for (List<MetricFamily> families : index.families()) {
+            assertEquals(families.get(0).name().equals("pattern_metric") ? 2 : 1, families.size());
+        }
+
+        // Families are removed with their last metric, or when the allowlist no longer matches them
+        reporter2.removeMetric("pattern_other");
+        assertEquals(1, index.families().size());
+        reporter1.allowlist = MetricNameMatcher.compile(List.of());
+        reporter1.updateAllowedMetrics();
+        assertEquals(1, index.families().iterator().next().size());
+
+        // Detaching a reporter removes its families
+        index.detach(reporter2);
+        assertTrue(index.families().isEmpty());
+        reporter2.addMetric("pattern_other", new TestMetricWrapper("pattern_other"));
+        assertTrue(index.families().isEmpty());
+    }
+
+    static final class TestMetricWrapper extends MetricWrapper {
+
+        TestMetricWrapper(String prometheusName) {
+            super(prometheusName, null, null, null);
+        }
+
+        TestMetricWrapper(String prometheusName, Labels labels) {
+            super(prometheusName, labels, null, null);
+        }
+    }
+
     static final class TestReporter extends AbstractReporter {
 
         private final boolean isReconfigurable;
-        private Pattern allowlist;
+        private MetricNameMatcher allowlist;
+        private MetricNameMatcher denylist = MetricNameMatcher.compile(List.of());
+        private SeriesLimits seriesLimits = SeriesLimits.NONE;
+        private LabelFilter labelFilter = LabelFilter.NONE;
+        private final List<Object> wrappersBuilt = new ArrayList<>();
+        private int allowlistEvaluations;
 
-        TestReporter(Pattern allowlist, boolean isReconfigurable) {
+        TestReporter(MetricNameMatcher allowlist, boolean isReconfigurable) {
             this.allowlist = allowlist;
             this.isReconfigurable = isReconfigurable;
         }
 
         @Override
-        protected Pattern allowlist() {
+        protected MetricNameMatcher allowlist() {
+            allowlistEvaluations++;
             return allowlist;
         }
 
+        @Override
+        protected MetricNameMatcher denylist() {
+            return denylist;
+        }
+
+        @Override
+        protected LabelFilter labelFilter() {
+            return labelFilter;
+        }
+
+        @Override
+        protected SeriesLimits seriesLimits() {
+            return seriesLimits;
+        }
+
         @Override
         protected boolean isReconfigurable() {
             return isReconfigurable;
         }
+
+        @Override
+        protected MetricWrapper metricWrapper(Object name, String prometheusName, Object metric) {
+            wrappersBuilt.add(name);
+            return new TestMetricWrapper(prometheusName);
+        }
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testPutIfAbsent() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        assertNull(cache.get("key"));
+        assertEquals("value", cache.putIfAbsent("key", "value"));
+        assertEquals("value", cache.putIfAbsent("key", "other"));
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(80);
+        for (int i = 0; i < 80; i++) {
+            cache.putIfAbsent(i, i);
+        }
+        assertEquals(80, cache.size());
+
+        // Going over the maximum evicts an eighth of the entries, not all of them
+        cache.putIfAbsent(80, 80);
+        assertEquals(70, cache.size());
+        int cached = 0;
+        for (int i = 0; i <= 80; i++) {
+            if (cache.get(i) != null) {
+                cached++;
+            }
+        }
+        assertEquals(70, cached);
+    }
+
+    @Test
+    public void testConcurrentPuts() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t * 100_000;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        cache.putIfAbsent(offset + i, i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(cache.size() <= 1000);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LabelFilterTest {
+
+    @Test
+    public void testNoRules() {
+        LabelFilter labelFilter = LabelFilter.create(List.of(), List.of(), List.of());
+        assertSame(LabelFilter.NONE, labelFilter);
+        assertSame(LabelFilter.Rule.KEEP_ALL, labelFilter.forMetric("kafka_server_metric"));
+        assertFalse(labelFilter.isAdditive("kafka_server_metric"));
+    }
+
+    @Test
+    public void testDropAndKeep() {
+        LabelFilter labelFilter = LabelFilter.create(
+                List.of("kafka_server_.*=partition", "kafka_server_log_.*=topic;"),
+                List.of("kafka_server_log_.*=topic;partition;broker"),
+                List.of(".*_total"));
+
+        LabelFilter.Rule rule = labelFilter.forMetric("kafka_server_metric");
+        assertFalse(rule.keeps("partition"));
+        assertTrue(rule.keeps("topic"));
+
+        rule = labelFilter.forMetric("kafka_server_log_size");
+        assertFalse(rule.keeps("partition"));
+        assertFalse(rule.keeps("topic"));
+        assertTrue(rule.keeps("broker"));
+        assertFalse(rule.keeps("client_id"));
+
+        assertSame(LabelFilter.Rule.KEEP_ALL.keeps("partition"), labelFilter.forMetric("kafka_network_metric").keeps("partition"));
+        assertTrue(labelFilter.forMetric("kafka_network_metric").keepsAll());
+        assertFalse(labelFilter.forMetric("kafka_server_metric").keepsAll());
+        assertTrue(labelFilter.isAdditive("kafka_server_requests_total"));
+        assertFalse(labelFilter.isAdditive("kafka_server_requests_rate"));
+    }
+
+    @Test
+    public void testInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> LabelFilter.create(List.of("partition"), List.of(), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> LabelFilter.create(List.of("=partition"), List.of(), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> LabelFilter.create(List.of(), List.of("hell[o=partition"), List.of()));
+    }
+}
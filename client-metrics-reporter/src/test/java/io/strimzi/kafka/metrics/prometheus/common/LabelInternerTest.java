@@ -0,0 +1,72 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import io.prometheus.metrics.model.snapshots.Label;
+import io.prometheus.metrics.model.snapshots.Labels;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class LabelInternerTest {
+
+    @BeforeEach
+    public void setUp() {
+        LabelInterner.clear();
+    }
+
+    @Test
+    public void testLabelName() {
+        assertEquals("client_id", LabelInterner.labelName("client-id"));
+        assertSame(LabelInterner.labelName("client-id"), LabelInterner.labelName(new String("client-id")));
+        assertSame(LabelInterner.labelName("client_id"), LabelInterner.labelName("client-id"));
+    }
+
+    @Test
+    public void testLabelValue() {
+        assertNull(LabelInterner.labelValue(null));
+        String value = LabelInterner.labelValue(new String("my-topic"));
+        assertEquals("my-topic", value);
+        assertSame(value, LabelInterner.labelValue(new String("my-topic")));
+    }
+
+    @Test
+    public void testDuplicatedStringsFootprint() {
+        // The labels of 100 topics with 1000 partitions each only hold the distinct strings
+        Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int topic = 0; topic < 100; topic++) {
+            for (int partition = 0; partition < 1000; partition++) {
+                Labels labels = Labels.builder()
+                        .label(LabelInterner.labelName("topic"), LabelInterner.labelValue("topic" + topic))
+                        .label(LabelInterner.labelName("partition"), LabelInterner.labelValue(String.valueOf(partition)))
+                        .build();
+                for (Label label : labels) {
+                    strings.add(label.getName());
+                    strings.add(label.getValue());
+                }
+            }
+        }
+        assertEquals(2 + 100 + 1000, strings.size());
+    }
+
+    @Test
+    public void testBoundedPool() {
+        String first = LabelInterner.labelValue(new String("first"));
+        for (int i = 0; i < 2 * LabelInterner.MAX_VALUES; i++) {
+            LabelInterner.labelValue("value" + i);
+        }
+        // Values evicted from the pool are still equal but may no longer be shared with the previous instances
+        assertEquals(first, LabelInterner.labelValue(new String("first")));
+        String value = LabelInterner.labelValue(new String("value0"));
+        assertSame(value, LabelInterner.labelValue(new String("value0")));
+    }
+}
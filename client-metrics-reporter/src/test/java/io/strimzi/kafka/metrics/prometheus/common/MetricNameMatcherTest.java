@@ -0,0 +1,72 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricNameMatcherTest {
+
+    @Test
+    public void testMatchAll() {
+        MetricNameMatcher matcher = MetricNameMatcher.compile(List.of(".*"));
+        assertTrue(matcher.matches(""));
+        assertTrue(matcher.matches("kafka_server_metric"));
+        assertEquals("(.*)", matcher.pattern());
+    }
+
+    @Test
+    public void testLiteralsAndPrefixes() {
+        MetricNameMatcher matcher = MetricNameMatcher.compile(List.of("kafka_server_metric", "kafka_network.*", "kafka_log_log_size.*"));
+        assertTrue(matcher.matches("kafka_server_metric"));
+        assertFalse(matcher.matches("kafka_server_metric_total"));
+        assertFalse(matcher.matches("kafka_server"));
+        assertTrue(matcher.matches("kafka_network"));
+        assertTrue(matcher.matches("kafka_network_metric"));
+        assertTrue(matcher.matches("kafka_log_log_size_total"));
+        assertFalse(matcher.matches("kafka_log_log"));
+        assertFalse(matcher.matches("random_name"));
+    }
+
+    @Test
+    public void testBlankEntries() {
+        MetricNameMatcher matcher = MetricNameMatcher.compile(List.of("kafka_server_metric", "", " "));
+        assertTrue(matcher.matches("kafka_server_metric"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches(" "));
+        assertFalse(MetricNameMatcher.compile(List.of("")).matches(""));
+    }
+
+    @Test
+    public void testRegularExpressions() {
+        MetricNameMatcher matcher = MetricNameMatcher.compile(List.of("kafka_server_(a|b)_.*", "kafka_controller.*count", "kafka_network.*"));
+        assertTrue(matcher.matches("kafka_server_a_metric"));
+        assertFalse(matcher.matches("kafka_server_c_metric"));
+        assertTrue(matcher.matches("kafka_controller_event_count"));
+        assertFalse(matcher.matches("kafka_controller_event_rate"));
+        assertTrue(matcher.matches("kafka_network_metric"));
+    }
+
+    @Test
+    public void testSameDecisionsAsPattern() {
+        List<String> entries = List.of("kafka_server_metric", "kafka_network.*", "kafka_server_(a|b)_.*", "kafka_.*_count", "kafka:log.*");
+        MetricNameMatcher matcher = MetricNameMatcher.compile(entries);
+        Pattern pattern = Pattern.compile(matcher.pattern());
+        List<String> names = List.of("kafka_server_metric", "kafka_server_metrics", "kafka_network", "kafka_server_a_x",
+                "kafka_server_c_x", "kafka_log_count", "kafka:log_size", "kafka_log", "", "random_name");
+        for (int i = 0; i < 2; i++) {
+            // The second iteration uses the memoized decisions
+            for (String name : names) {
+                assertEquals(pattern.matcher(name).matches(), matcher.matches(name), name);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@
 package io.strimzi.kafka.metrics.prometheus.common;
 
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.CounterSnapshot;
 import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
 import io.prometheus.metrics.model.snapshots.InfoSnapshot;
 import io.prometheus.metrics.model.snapshots.Labels;
@@ -14,10 +15,20 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.strimzi.kafka.metrics.prometheus.MetricsUtils.assertGaugeSnapshot;
 import static io.strimzi.kafka.metrics.prometheus.MetricsUtils.assertInfoSnapshot;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -62,6 +73,162 @@ public class PrometheusCollectorTest {
         assertInfoSnapshot(findSnapshot(snapshots, InfoSnapshot.class), labels, metricName, String.valueOf(value));
     }
 
+    @Test
+    public void testScrapeCache() {
+        PrometheusCollector prometheusCollector = new PrometheusCollector();
+        AtomicInteger collections = new AtomicInteger();
+        prometheusCollector.addCollector(() -> {
+            collections.incrementAndGet();
+            return List.of();
+        });
+
+        prometheusCollector.collect();
+        prometheusCollector.collect();
+        assertEquals(2, collections.get());
+
+        prometheusCollector.setScrapeCacheMs(60_000L);
+        MetricSnapshots snapshots1 = prometheusCollector.collect();
+        MetricSnapshots snapshots2 = prometheusCollector.collect();
+        assertEquals(3, collections.get());
+        assertSame(snapshots1, snapshots2);
+
+        prometheusCollector.setScrapeCacheMs(0L);
+        prometheusCollector.collect();
+        assertEquals(4, collections.get());
+    }
+
+    @Test
+    public void testConcurrentScrapesShareCollection() throws Exception {
+        PrometheusCollector prometheusCollector = new PrometheusCollector();
+        prometheusCollector.setScrapeCacheMs(60_000L);
+        AtomicInteger collections = new AtomicInteger();
+        CountDownLatch collecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        prometheusCollector.addCollector(() -> {
+            collections.incrementAndGet();
+            collecting.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        });
+
+        int scrapers = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(scrapers);
+        try {
+            List<Future<MetricSnapshots>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> prometheusCollector.collect()));
+            assertTrue(collecting.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < scrapers; i++) {
+                futures.add(executor.submit(() -> prometheusCollector.collect()));
+            }
+            release.countDown();
+            MetricSnapshots first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<MetricSnapshots> future : futures) {
+                assertSame(first, future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, collections.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBackgroundCollection() throws Exception {
+        PrometheusCollector prometheusCollector = new PrometheusCollector();
+        Set<String> collectingThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger collections = new AtomicInteger();
+        prometheusCollector.addCollector(() -> {
+            collectingThreads.add(Thread.currentThread().getName());
+            collections.incrementAndGet();
+            return List.of(GaugeSnapshot.builder()
+                    .name("gauge")
+                    .dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(Labels.EMPTY, collections.get()))
+                    .build());
+        });
+
+        prometheusCollector.setCollectionIntervalMs(10L);
+        try {
+            long deadline = System.currentTimeMillis() + 10_000L;
+            while (collections.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertTrue(collections.get() >= 3);
+            assertEquals(1, prometheusCollector.collect().size());
+            assertEquals(Set.of("prometheus-collector"), collectingThreads);
+        } finally {
+            prometheusCollector.setCollectionIntervalMs(0L);
+        }
+
+        collectingThreads.clear();
+        prometheusCollector.collect();
+        assertEquals(Set.of(Thread.currentThread().getName()), collectingThreads);
+    }
+
+    @Test
+    public void testBackgroundCollectionLifecycle() throws Exception {
+        PrometheusCollector prometheusCollector = new PrometheusCollector();
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+        CountDownLatch releaseBackground = new CountDownLatch(1);
+        prometheusCollector.addCollector(() -> {
+            if (Thread.currentThread().getName().equals("prometheus-collector")) {
+                backgroundStarted.countDown();
+                try {
+                    releaseBackground.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of(GaugeSnapshot.builder()
+                    .name("gauge")
+                    .dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(Labels.EMPTY, 1))
+                    .build());
+        });
+        prometheusCollector.acquire();
+        prometheusCollector.acquire();
+        prometheusCollector.setCollectionIntervalMs(10L);
+        try {
+            // Until the first background collection completes, scrapes collect the metrics themselves
+            assertTrue(backgroundStarted.await(10L, TimeUnit.SECONDS));
+            assertEquals(1, prometheusCollector.collect().size());
+        } finally {
+            releaseBackground.countDown();
+        }
+
+        // The background collection stops once all the reporters are released
+        prometheusCollector.release();
+        assertTrue(prometheusCollector.isCollectingInBackground());
+        prometheusCollector.release();
+        assertFalse(prometheusCollector.isCollectingInBackground());
+        assertEquals(1, prometheusCollector.collect().size());
+    }
+
+    @Test
+    public void testRejectedSeries() {
+        PrometheusCollector prometheusCollector = new PrometheusCollector();
+        prometheusCollector.addCollector(List::of);
+        assertEquals(0, prometheusCollector.collect().size());
+
+        prometheusCollector.addCollector(new MetricsCollector() {
+            @Override
+            public List<MetricSnapshot> collect() {
+                return List.of();
+            }
+
+            @Override
+            public OptionalLong rejectedSeries() {
+                return OptionalLong.of(3L);
+            }
+        });
+        MetricSnapshots snapshots = prometheusCollector.collect();
+        assertEquals(1, snapshots.size());
+        CounterSnapshot snapshot = (CounterSnapshot) snapshots.get(0);
+        assertEquals("strimzi_metrics_reporter_rejected_series", snapshot.getMetadata().getName());
+        assertEquals(3.0, snapshot.getDataPoints().get(0).getValue());
+    }
+
     private MetricSnapshot findSnapshot(MetricSnapshots snapshots, Class<?> clazz) {
         for (MetricSnapshot snapshot : snapshots) {
             if (clazz.isInstance(snapshot)) {
@@ -0,0 +1,56 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrometheusNameCacheTest {
+
+    @Test
+    public void testCachedNames() {
+        PrometheusNameCache cache = new PrometheusNameCache();
+        AtomicInteger derivations = new AtomicInteger();
+        PrometheusNameCache.Deriver deriver = (first, second, third) -> {
+            derivations.incrementAndGet();
+            return first + "_" + second + "_" + third;
+        };
+
+        String name = cache.prometheusName("kafka_server", "group", "name", deriver);
+        assertEquals("kafka_server_group_name", name);
+        assertSame(name, cache.prometheusName("kafka_server", "group", "name", deriver));
+        assertEquals(1, derivations.get());
+
+        // Each component is part of the key
+        assertEquals("kafka_server_group_name2", cache.prometheusName("kafka_server", "group", "name2", deriver));
+        assertEquals("kafka_server_group2_name", cache.prometheusName("kafka_server", "group2", "name", deriver));
+        assertEquals("kafka_producer_group_name", cache.prometheusName("kafka_producer", "group", "name", deriver));
+        assertEquals("kafka_server_null_name", cache.prometheusName("kafka_server", null, "name", deriver));
+        assertEquals(5, derivations.get());
+    }
+
+    @Test
+    public void testBoundedCache() {
+        PrometheusNameCache cache = new PrometheusNameCache();
+        AtomicInteger derivations = new AtomicInteger();
+        PrometheusNameCache.Deriver deriver = (first, second, third) -> {
+            derivations.incrementAndGet();
+            return first + "_" + second + "_" + third;
+        };
+        for (int i = 0; i <= PrometheusNameCache.MAX_NAMES; i++) {
+            cache.prometheusName("prefix", "group", "name" + i, deriver);
+        }
+        // Once full, only some names are evicted, so most names are still cached
+        for (int i = 0; i <= PrometheusNameCache.MAX_NAMES; i++) {
+            cache.prometheusName("prefix", "group", "name" + i, deriver);
+        }
+        assertTrue(derivations.get() < 2 * PrometheusNameCache.MAX_NAMES);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SeriesTableTest {
+
+    @Test
+    public void testPutAndRemove() {
+        SeriesTable table = new SeriesTable();
+        MetricWrapper metric1 = new AbstractReporterTest.TestMetricWrapper("metric");
+        MetricWrapper metric2 = new AbstractReporterTest.TestMetricWrapper("metric");
+        assertNull(table.put("key1", metric1));
+        assertNull(table.put("key2", metric2));
+        assertEquals(2, table.size());
+
+        // Replacing a series keeps its id
+        assertSame(metric1, table.put("key1", metric2));
+        assertEquals(List.of(metric2, metric2), new ArrayList<>(table.metrics()));
+
+        assertSame(metric2, table.remove("key1"));
+        assertNull(table.remove("key1"));
+        assertEquals(1, table.size());
+        assertEquals(List.of(metric2), new ArrayList<>(table.metrics()));
+
+        // Removed ids are reused
+        assertNull(table.put("key3", metric1));
+        assertEquals(List.of(metric1, metric2), new ArrayList<>(table.metrics()));
+
+        table.remove("key2");
+        table.remove("key3");
+        assertEquals(0, table.size());
+        assertTrue(table.metrics().isEmpty());
+    }
+
+    @Test
+    public void testDeleteWithCollisions() {
+        // The table starts with 8 slots, all these keys but the last one have slot 7 as home so their probe
+        // sequence wraps around to the first slots, where the last key has its home
+        SeriesTable table = new SeriesTable();
+        HashedKey a = new HashedKey("a", 7);
+        HashedKey b = new HashedKey("b", 7);
+        HashedKey c = new HashedKey("c", 0);
+        HashedKey d = new HashedKey("d", 7);
+        List<HashedKey> keys = List.of(a, b, c, d);
+        Map<HashedKey, MetricWrapper> metrics = new HashMap<>();
+        for (HashedKey key : keys) {
+            metrics.put(key, new AbstractReporterTest.TestMetricWrapper(key.name));
+            table.put(key, metrics.get(key));
+        }
+
+        // Removing the head of the cluster shifts back the following keys, including the ones that wrapped around
+        assertSame(metrics.get(a), table.remove(a));
+        for (HashedKey key : List.of(b, c, d)) {
+            assertSame(metrics.get(key), table.get(key));
+        }
+        assertNull(table.get(a));
+
+        // Removing from the middle of the cluster keeps the keys after it reachable
+        assertSame(metrics.get(c), table.remove(c));
+        assertSame(metrics.get(b), table.get(b));
+        assertSame(metrics.get(d), table.get(d));
+        assertNull(table.get(c));
+
+        assertNull(table.put(a, metrics.get(a)));
+        assertNull(table.put(c, metrics.get(c)));
+        for (HashedKey key : keys) {
+            assertSame(metrics.get(key), table.get(key));
+        }
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    public void testFreeIdsReuse() {
+        SeriesTable table = new SeriesTable();
+        List<MetricWrapper> metrics = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            metrics.add(new AbstractReporterTest.TestMetricWrapper("metric" + i));
+        }
+        for (int i = 0; i < 4; i++) {
+            table.put("key" + i, metrics.get(i));
+        }
+        table.remove("key1");
+        table.remove("key2");
+        assertEquals(List.of(metrics.get(0), metrics.get(3)), new ArrayList<>(table.metrics()));
+
+        // The last removed id is reused first, metrics are iterated in the order of their ids
+        table.put("key4", metrics.get(4));
+        table.put("key5", metrics.get(5));
+        assertEquals(List.of(metrics.get(0), metrics.get(5), metrics.get(4), metrics.get(3)), new ArrayList<>(table.metrics()));
+        assertEquals(4, table.size());
+
+        // Once the free ids are used, new ids are allocated
+        table.put("key6", metrics.get(0));
+        assertEquals(5, table.size());
+        assertSame(metrics.get(0), new ArrayList<>(table.metrics()).get(4));
+    }
+
+    @Test
+    public void testRandomUpdates() {
+        // Keys with colliding hash codes exercise the probe sequences and their deletion
+        Random random = new Random(42);
+        SeriesTable table = new SeriesTable();
+        Map<Object, MetricWrapper> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            Object key = new CollidingKey(random.nextInt(2000));
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(key), table.remove(key));
+            } else {
+                MetricWrapper metric = new AbstractReporterTest.TestMetricWrapper("metric" + i);
+                assertSame(expected.put(key, metric), table.put(key, metric));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(table.metrics()));
+        for (Object key : new ArrayList<>(expected.keySet())) {
+            assertSame(expected.remove(key), table.remove(key));
+        }
+        assertEquals(0, table.size());
+    }
+
+    private static final class HashedKey {
+        private final String name;
+        private final int hash;
+
+        private HashedKey(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof HashedKey && ((HashedKey) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CollidingKey {
+        private final int value;
+
+        private CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value / 8;
+        }
+    }
+}
@@ -4,15 +4,36 @@
  */
 package io.strimzi.kafka.metrics.prometheus.http;
 
+import io.prometheus.metrics.model.registry.MultiCollector;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+import io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpServersTest {
@@ -48,6 +69,312 @@ public class HttpServersTest {
         assertFalse(listenerStarted(listener3.host, server3.port()));
     }
 
+    @Test
+    public void testCachedExposition() throws IOException {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        AtomicInteger scrapes = new AtomicInteger();
+        registry.register(() -> {
+            scrapes.incrementAndGet();
+            return MetricSnapshots.of(GaugeSnapshot.builder()
+                    .name("gauge")
+                    .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(1.0).build())
+                    .build());
+        });
+        Listener listener = Listener.parseListener("http://localhost:0");
+        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, 60_000L);
+        try {
+            String plain = scrape(listener.host, server.port(), false);
+            assertTrue(plain.contains("gauge 1.0"));
+            assertEquals(plain, scrape(listener.host, server.port(), false));
+            assertEquals(plain, scrape(listener.host, server.port(), true));
+            assertEquals(1, scrapes.get());
+        } finally {
+            HttpServers.release(server);
+        }
+    }
+
+    @Test
+    public void testCollectionFailure() throws IOException {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register((MultiCollector) () -> {
+            throw new IllegalStateException("collection failed");
+        });
+        for (boolean streaming : new boolean[] {false, true}) {
+            Listener listener = Listener.parseListener("http://localhost:0");
+            HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, new ListenerOptions(streaming ? 0L : 60_000L, streaming, false, 0, ExpositionFormat.AUTO));
+            try {
+                URL url = new URL("http://" + listener.host + ":" + server.port() + "/metrics");
+                // The exchanges are closed so the server keeps answering requests
+                for (int i = 0; i < 2; i++) {
+                    HttpURLConnection con = (HttpURLConnection) url.openConnection();
+                    assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR, con.getResponseCode());
+                }
+            } finally {
+                HttpServers.release(server);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingExposition() throws IOException {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> {
+            GaugeSnapshot.Builder builder = GaugeSnapshot.builder().name("gauge");
+            for (int i = 0; i < 10_000; i++) {
+                builder.dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().labels(Labels.of("series", String.valueOf(i))).value(i).build());
+            }
+            return MetricSnapshots.of(builder.build());
+        });
+        Listener listener = Listener.parseListener("http://localhost:0");
+        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, new ListenerOptions(0L, true, false, 0, ExpositionFormat.AUTO));
+        try {
+            URL url = new URL("http://" + listener.host + ":" + server.port() + "/metrics");
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            assertEquals(HttpURLConnection.HTTP_OK, con.getResponseCode());
+            assertEquals("chunked", con.getHeaderField("Transfer-Encoding"));
+
+            String plain = scrape(listener.host, server.port(), false);
+            assertTrue(plain.contains("gauge{series=\"0\"} 0.0"));
+            assertTrue(plain.contains("gauge{series=\"9999\"} 9999.0"));
+            assertEquals(plain, scrape(listener.host, server.port(), true));
+            assertTrue(listenerStarted(listener.host, server.port()));
+        } finally {
+            HttpServers.release(server);
+        }
+    }
+
+    @Test
+    public void testFormatNegotiation() throws IOException {
+        Listener listener = Listener.parseListener("http://localhost:0");
+        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, ListenerOptions.DEFAULT);
+        try {
+            assertTrue(contentType(listener.host, server.port(), null).startsWith("text/plain"));
+            assertTrue(contentType(listener.host, server.port(), ExpositionFormat.OPENMETRICS.accept()).startsWith("application/openmetrics-text"));
+            assertTrue(contentType(listener.host, server.port(), ExpositionFormat.PROTOBUF.accept()).startsWith("application/vnd.google.protobuf"));
+        } finally {
+            HttpServers.release(server);
+        }
+    }
+
+    @Test
+    public void testForcedFormat() throws IOException {
+        for (boolean streaming : new boolean[] {false, true}) {
+            Listener listener = Listener.parseListener("http://localhost:0");
+            HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, new ListenerOptions(0L, streaming, false, 0, ExpositionFormat.OPENMETRICS));
+            try {
+                assertTrue(contentType(listener.host, server.port(), null).startsWith("application/openmetrics-text"));
+                assertTrue(contentType(listener.host, server.port(), ExpositionFormat.PROTOBUF.accept()).startsWith("application/openmetrics-text"));
+            } finally {
+                HttpServers.release(server);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentScrapes() throws Exception {
+        for (boolean virtualThreads : new boolean[] {false, true}) {
+            // Each collection waits for all the others to start, so the scrapes only succeed if they are handled in parallel
+            int scrapers = HttpServers.MAX_THREADS;
+            CountDownLatch collecting = new CountDownLatch(scrapers);
+            PrometheusRegistry registry = new PrometheusRegistry();
+            registry.register(() -> {
+                collecting.countDown();
+                boolean parallel;
+                try {
+                    parallel = collecting.await(30L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    parallel = false;
+                }
+                return MetricSnapshots.of(GaugeSnapshot.builder()
+                        .name("gauge")
+                        .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(parallel ? 1.0 : 0.0).build())
+                        .build());
+            });
+            Listener listener = Listener.parseListener("http://localhost:0");
+            HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, new ListenerOptions(0L, false, virtualThreads, 0, ExpositionFormat.AUTO));
+            ExecutorService executor = Executors.newFixedThreadPool(scrapers);
+            try {
+                List<Future<String>> futures = new ArrayList<>();
+                for (int i = 0; i < scrapers; i++) {
+                    futures.add(executor.submit(() -> scrape(listener.host, server.port(), false)));
+                }
+                for (Future<String> future : futures) {
+                    assertTrue(future.get(60L, TimeUnit.SECONDS).contains("gauge 1.0"));
+                }
+            } finally {
+                executor.shutdownNow();
+                HttpServers.release(server);
+            }
+        }
+    }
+
+    @Test
+    public void testScrapeLatencyWithVirtualThreads() throws Exception {
+        long collectionMs = 200L;
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> {
+            try {
+                Thread.sleep(collectionMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return MetricSnapshots.of(GaugeSnapshot.builder()
+                    .name("gauge")
+                    .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(1.0).build())
+                    .build());
+        });
+        Listener listener = Listener.parseListener("http://localhost:0");
+        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry,
+                new ListenerOptions(0L, false, true, ClientMetricsReporterConfig.LISTENER_MAX_INFLIGHT_REQUESTS_VIRTUAL_THREADS_DEFAULT, ExpositionFormat.AUTO));
+        int scrapers = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(scrapers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < scrapers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long startNs = System.nanoTime();
+                    assertTrue(scrape(listener.host, server.port(), false).contains("gauge 1.0"));
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+                }));
+            }
+            start.countDown();
+            List<Long> latencies = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                latencies.add(future.get(60L, TimeUnit.SECONDS));
+            }
+            Collections.sort(latencies);
+            long p99 = latencies.get((int) Math.ceil(0.99 * latencies.size()) - 1);
+            // Handled one after the other, the scrapes would take 50 collections. Handled in parallel they take about
+            // one collection, or a few with the platform threads used before Java 21.
+            assertTrue(p99 < 10 * collectionMs, "p99 scrape latency of " + p99 + "ms with " + collectionMs + "ms collections");
+        } finally {
+            executor.shutdownNow();
+            HttpServers.release(server);
+        }
+    }
+
+    @Test
+    public void testExecutorSelection() {
+        ExecutorService platform = HttpServers.ServerCounter.executor(false, 0);
+        try {
+            assertTrue(platform instanceof ThreadPoolExecutor);
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) platform;
+            assertEquals(HttpServers.MAX_THREADS, pool.getMaximumPoolSize());
+            assertEquals(HttpServers.MAX_QUEUED_REQUESTS, pool.getQueue().remainingCapacity());
+            // Requests are never run by the accepting thread
+            assertTrue(pool.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+        } finally {
+            platform.shutdown();
+        }
+
+        ExecutorService virtual = HttpServers.ServerCounter.executor(true, 0);
+        try {
+            // Virtual threads are only available from Java 21, older versions fall back to platform threads
+            assertEquals(Runtime.version().feature() < 21, virtual instanceof ThreadPoolExecutor);
+        } finally {
+            virtual.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaturatedExecutor() throws Exception {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) HttpServers.ServerCounter.executor(false, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < HttpServers.MAX_THREADS + HttpServers.MAX_QUEUED_REQUESTS; i++) {
+                pool.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            // Once the threads are busy and the queue is full, requests are rejected instead of blocking the caller
+            assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testInflightLimit() throws Exception {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        CountDownLatch collecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        registry.register(() -> {
+            collecting.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return MetricSnapshots.of(GaugeSnapshot.builder()
+                    .name("gauge")
+                    .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(1.0).build())
+                    .build());
+        });
+        Listener listener = Listener.parseListener("http://localhost:0");
+        HttpServers.ServerCounter server = HttpServers.getOrCreate(listener, registry, new ListenerOptions(0L, false, false, 1, ExpositionFormat.AUTO));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> inflight = executor.submit(() -> scrape(listener.host, server.port(), false));
+            assertTrue(collecting.await(30L, TimeUnit.SECONDS));
+
+            URL url = new URL("http://" + listener.host + ":" + server.port() + "/metrics");
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, con.getResponseCode());
+
+            release.countDown();
+            assertTrue(inflight.get(30L, TimeUnit.SECONDS).contains("gauge 1.0"));
+            // The permit is released once the handler returns, which can be just after the response is received
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+            int status;
+            do {
+                con = (HttpURLConnection) url.openConnection();
+                status = con.getResponseCode();
+            } while (status == HttpURLConnection.HTTP_UNAVAILABLE && System.nanoTime() < deadline);
+            assertEquals(HttpURLConnection.HTTP_OK, status);
+            assertTrue(scrape(listener.host, server.port(), false).contains("gauge 1.0"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            HttpServers.release(server);
+        }
+    }
+
+    private String scrape(String host, int port, boolean gzip) throws IOException {
+        URL url = new URL("http://" + host + ":" + port + "/metrics");
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        if (gzip) {
+            con.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        assertEquals(HttpURLConnection.HTTP_OK, con.getResponseCode());
+        if (gzip) {
+            assertEquals("gzip", con.getHeaderField("Content-Encoding"));
+        }
+        try (InputStream is = gzip ? new GZIPInputStream(con.getInputStream()) : con.getInputStream()) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String contentType(String host, int port, String accept) throws IOException {
+        URL url = new URL("http://" + host + ":" + port + "/metrics");
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        if (accept != null) {
+            con.setRequestProperty("Accept", accept);
+        }
+        assertEquals(HttpURLConnection.HTTP_OK, con.getResponseCode());
+        try (InputStream is = con.getInputStream()) {
+            is.readAllBytes();
+        }
+        return con.getContentType();
+    }
+
     private boolean listenerStarted(String host, int port) {
         try {
             URL url = new URL("http://" + host + ":" + port + "/metrics");
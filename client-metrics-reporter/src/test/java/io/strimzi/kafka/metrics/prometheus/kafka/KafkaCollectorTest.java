@@ -4,21 +4,26 @@
  */
 package io.strimzi.kafka.metrics.prometheus.kafka;
 
+import io.prometheus.metrics.model.snapshots.DataPointSnapshot;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
 import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.MetricSnapshot;
 import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
+import io.strimzi.kafka.metrics.prometheus.common.SeriesLimits;
 import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.metrics.Gauge;
 import org.apache.kafka.common.metrics.KafkaMetric;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Pattern;
 
 import static io.strimzi.kafka.metrics.prometheus.KafkaMetricsUtils.newKafkaMetric;
 import static io.strimzi.kafka.metrics.prometheus.MetricsUtils.assertGaugeSnapshot;
@@ -46,12 +51,7 @@ public class KafkaCollectorTest {
     @Test
     public void testCollectKafkaMetrics() {
         KafkaCollector collector = new KafkaCollector();
-        AbstractReporter reporter = new AbstractReporter() {
-            @Override
-            protected Pattern allowlist() {
-                return Pattern.compile(".*");
-            }
-        };
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
         collector.addReporter(reporter);
 
         List<? extends MetricSnapshot> metrics = collector.collect();
@@ -86,12 +86,7 @@ public class KafkaCollectorTest {
     @Test
     public void testCollectNonNumericKafkaMetric() {
         KafkaCollector collector = new KafkaCollector();
-        AbstractReporter reporter = new AbstractReporter() {
-            @Override
-            protected Pattern allowlist() {
-                return Pattern.compile(".*");
-            }
-        };
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
         collector.addReporter(reporter);
 
         List<? extends MetricSnapshot> metrics = collector.collect();
@@ -117,12 +112,7 @@ public class KafkaCollectorTest {
     @Test
     public void testHelpMessage() {
         KafkaCollector collector = new KafkaCollector();
-        AbstractReporter reporter = new AbstractReporter() {
-            @Override
-            protected Pattern allowlist() {
-                return Pattern.compile(".*");
-            }
-        };
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
         collector.addReporter(reporter);
 
         // Test numeric metric
@@ -150,6 +140,192 @@ public class KafkaCollectorTest {
         assertEquals(expectedHelpMessage, metrics.get(0).getMetadata().getHelp());
     }
 
+    @Test
+    public void testCollapsedSeries() {
+        LabelFilter labelFilter = LabelFilter.create(List.of(".*=k1"), List.of(), List.of(".*_requests"));
+        KafkaCollector collector = new KafkaCollector();
+        AbstractReporter reporter = allowAllReporter(labelFilter);
+        collector.addReporter(reporter);
+
+        Labels collapsedLabels = Labels.of("k0", "v0");
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> tags = Map.of("k0", "v0", "k1", "v" + i);
+            int value = i + 1;
+            MetricName total = new MetricName("requests-total", "group", "description", tags);
+            reporter.addMetric(total, newKafkaMetricWrapper(total, (config, now) -> value, labelFilter));
+            MetricName rate = new MetricName("requests-rate", "group", "description", tags);
+            reporter.addMetric(rate, newKafkaMetricWrapper(rate, (config, now) -> value, labelFilter));
+        }
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(2, metrics.size());
+        for (MetricSnapshot snapshot : metrics) {
+            if (snapshot.getMetadata().getName().endsWith("_requests")) {
+                // Additive gauges are summed
+                assertGaugeSnapshot(snapshot, 6, collapsedLabels);
+            } else {
+                // Other gauges keep a single series
+                assertEquals(1, snapshot.getDataPoints().size());
+                assertEquals(collapsedLabels, snapshot.getDataPoints().get(0).getLabels());
+            }
+        }
+    }
+
+    @Test
+    public void testCollapsedSeriesAcrossReporters() {
+        // Like a producer and a consumer in the same JVM dropping their client id, each reporter has a single series
+        // but both reporters have the same labels once k1 is dropped
+        LabelFilter labelFilter = LabelFilter.create(List.of(".*=k1"), List.of(), List.of(".*_requests"));
+        KafkaCollector collector = new KafkaCollector();
+        Labels collapsedLabels = Labels.of("k0", "v0");
+        for (int i = 0; i < 2; i++) {
+            AbstractReporter reporter = allowAllReporter(labelFilter);
+            collector.addReporter(reporter);
+            Map<String, String> tags = Map.of("k0", "v0", "k1", "v" + i);
+            int value = i + 1;
+            MetricName total = new MetricName("requests-total", "group", "description", tags);
+            reporter.addMetric(total, newKafkaMetricWrapper(total, (config, now) -> value, labelFilter));
+            MetricName rate = new MetricName("requests-rate", "group", "description", tags);
+            reporter.addMetric(rate, newKafkaMetricWrapper(rate, (config, now) -> value, labelFilter));
+        }
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(2, metrics.size());
+        for (MetricSnapshot snapshot : metrics) {
+            if (snapshot.getMetadata().getName().endsWith("_requests")) {
+                assertGaugeSnapshot(snapshot, 3, collapsedLabels);
+            } else {
+                assertEquals(1, snapshot.getDataPoints().size());
+                assertEquals(collapsedLabels, snapshot.getDataPoints().get(0).getLabels());
+            }
+        }
+    }
+
+    @Test
+    public void testOverflowAcrossReporters() {
+        // Each reporter folds its metrics beyond the first one into its own overflow series
+        LabelFilter labelFilter = LabelFilter.create(List.of(), List.of(), List.of(".*_requests"));
+        SeriesLimits seriesLimits = SeriesLimits.create(0, 1, true);
+        KafkaCollector collector = new KafkaCollector();
+        for (int r = 0; r < 2; r++) {
+            AbstractReporter reporter = allowAllReporter(labelFilter, seriesLimits);
+            collector.addReporter(reporter);
+            for (int i = 0; i < 3; i++) {
+                MetricName total = new MetricName("requests-total", "group", "description", Map.of("reporter", "r" + r, "k", "v" + i));
+                reporter.addMetric(total, newKafkaMetricWrapper(total, (config, now) -> 1, labelFilter));
+            }
+        }
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(1, metrics.size());
+        Map<Labels, Double> values = new HashMap<>();
+        for (DataPointSnapshot dataPoint : metrics.get(0).getDataPoints()) {
+            values.put(dataPoint.getLabels(), ((GaugeSnapshot.GaugeDataPointSnapshot) dataPoint).getValue());
+        }
+        // The overflow series of both reporters are summed
+        assertEquals(Map.of(
+                Labels.of("k", "v0", "reporter", "r0"), 1.0,
+                Labels.of("k", "v0", "reporter", "r1"), 1.0,
+                Labels.of("overflow", "true"), 4.0), values);
+    }
+
+    @Test
+    public void testPoolStoppedWithLastReporter() {
+        KafkaCollector collector = new KafkaCollector();
+        AbstractReporter reporter1 = allowAllReporter(LabelFilter.NONE);
+        AbstractReporter reporter2 = allowAllReporter(LabelFilter.NONE);
+        collector.addReporter(reporter1);
+        collector.addReporter(reporter2);
+        collector.setParallelism(4);
+        assertEquals(4, collector.parallelism());
+
+        collector.removeReporter(reporter1);
+        assertEquals(4, collector.parallelism());
+        collector.removeReporter(reporter2);
+        assertEquals(1, collector.parallelism());
+    }
+
+    @Test
+    public void testParallelCollection() {
+        KafkaCollector collector = new KafkaCollector();
+        for (int i = 0; i < 10; i++) {
+            AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
+            String task = "task" + i;
+            MetricName gauge = new MetricName("gauge", "group", "description", Map.of("task", task));
+            reporter.addMetric(gauge, newKafkaMetricWrapper(gauge, (config, now) -> task.length()));
+            MetricName info = new MetricName("info", "group", "description", Map.of("task", task));
+            reporter.addMetric(info, newKafkaMetricWrapper(info, (config, now) -> task));
+            MetricName own = new MetricName("own" + i, "group", "description", Map.of("task", task));
+            reporter.addMetric(own, newKafkaMetricWrapper(own, (config, now) -> 1));
+            collector.addReporter(reporter);
+        }
+
+        Map<String, MetricSnapshot> sequential = byName(collector.collect());
+        collector.setParallelism(4);
+        Map<String, MetricSnapshot> parallel = byName(collector.collect());
+        collector.setParallelism(1);
+
+        assertEquals(12, parallel.size());
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (Map.Entry<String, MetricSnapshot> entry : sequential.entrySet()) {
+            MetricSnapshot snapshot = parallel.get(entry.getKey());
+            assertEquals(entry.getValue().getClass(), snapshot.getClass());
+            assertEquals(entry.getValue().getMetadata().getHelp(), snapshot.getMetadata().getHelp());
+            assertEquals(entry.getValue().getDataPoints().size(), snapshot.getDataPoints().size());
+            for (int i = 0; i < snapshot.getDataPoints().size(); i++) {
+                // Data points are merged in the order of the reporters, like when collecting sequentially
+                assertEquals(entry.getValue().getDataPoints().get(i).getLabels(), snapshot.getDataPoints().get(i).getLabels());
+            }
+        }
+        for (String name : List.of("gauge", "info")) {
+            String prometheusName = KafkaMetricWrapper.prometheusName(METRIC_PREFIX, new MetricName(name, "group", "description", Map.of()));
+            assertEquals(10, parallel.get(prometheusName).getDataPoints().size());
+        }
+    }
+
+    private static AbstractReporter allowAllReporter(LabelFilter labelFilter) {
+        return allowAllReporter(labelFilter, SeriesLimits.NONE);
+    }
+
+    private static AbstractReporter allowAllReporter(LabelFilter labelFilter, SeriesLimits seriesLimits) {
+        return new AbstractReporter() {
+            @Override
+            protected MetricNameMatcher allowlist() {
+                return MetricNameMatcher.compile(List.of(".*"));
+            }
+
+            @Override
+            protected LabelFilter labelFilter() {
+                return labelFilter;
+            }
+
+            @Override
+            protected SeriesLimits seriesLimits() {
+                return seriesLimits;
+            }
+
+            @Override
+            protected MetricWrapper metricWrapper(Object name, String prometheusName, Object metric) {
+                KafkaMetric kafkaMetric = (KafkaMetric) metric;
+                return new KafkaMetricWrapper(prometheusName, kafkaMetric, kafkaMetric.metricName().name(), labelFilter);
+            }
+        };
+    }
+
+    private static Map<String, MetricSnapshot> byName(List<MetricSnapshot> snapshots) {
+        Map<String, MetricSnapshot> byName = new HashMap<>();
+        for (MetricSnapshot snapshot : snapshots) {
+            byName.put(snapshot.getMetadata().getName(), snapshot);
+        }
+        return byName;
+    }
+
+    private MetricWrapper newKafkaMetricWrapper(MetricName metricName, Gauge<?> gauge, LabelFilter labelFilter) {
+        KafkaMetric kafkaMetric = newKafkaMetric(metricName.name(), metricName.group(), gauge, metricName.tags());
+        String prometheusName = KafkaMetricWrapper.prometheusName(METRIC_PREFIX, metricName);
+        return new KafkaMetricWrapper(prometheusName, kafkaMetric, metricName.name(), labelFilter);
+    }
+
     private MetricWrapper newKafkaMetricWrapper(MetricName metricName, Gauge<?> gauge) {
         KafkaMetric kafkaMetric = newKafkaMetric(metricName.name(), metricName.group(), gauge, metricName.tags());
         String prometheusName = KafkaMetricWrapper.prometheusName(METRIC_PREFIX, metricName);
@@ -6,11 +6,13 @@ package io.strimzi.kafka.metrics.prometheus.kafka;
 
 import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.PrometheusNaming;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
 import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.metrics.KafkaMetric;
 import org.junit.jupiter.api.Test;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -51,4 +53,23 @@ public class KafkaMetricWrapperTest {
         assertEquals("v1", labels.get("k_1"));
         assertEquals(1, labels.size());
     }
+
+    @Test
+    public void testLabelsFromTagsWithFilter() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("client-id", "client");
+        tags.put("node-id", "node-1");
+        tags.put("topic", "topic");
+        tags.put("partition", "0");
+
+        LabelFilter labelFilter = LabelFilter.create(List.of("kafka_consumer_.*=partition;node_id"), List.of(), List.of());
+        Labels labels = KafkaMetricWrapper.labelsFromTags(tags, "", labelFilter.forMetric("kafka_consumer_metric"));
+        assertEquals(Labels.of("client_id", "client", "topic", "topic"), labels);
+        labels = KafkaMetricWrapper.labelsFromTags(tags, "", labelFilter.forMetric("kafka_producer_metric"));
+        assertEquals(4, labels.size());
+
+        labelFilter = LabelFilter.create(List.of(), List.of("kafka_consumer_.*=client_id"), List.of());
+        labels = KafkaMetricWrapper.labelsFromTags(tags, "", labelFilter.forMetric("kafka_consumer_metric"));
+        assertEquals(Labels.of("client_id", "client"), labels);
+    }
 }
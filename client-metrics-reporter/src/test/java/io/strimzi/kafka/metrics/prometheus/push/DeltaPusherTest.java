@@ -0,0 +1,307 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import com.sun.net.httpserver.HttpServer;
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.prometheus.metrics.model.snapshots.CounterSnapshot;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.HistogramSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+import io.prometheus.metrics.model.snapshots.NativeHistogramBuckets;
+import io.prometheus.metrics.model.snapshots.Quantile;
+import io.prometheus.metrics.model.snapshots.Quantiles;
+import io.prometheus.metrics.model.snapshots.SummarySnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeltaPusherTest {
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private HttpServer receiver;
+    private URI url;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/v1/metrics", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                requests.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        receiver.start();
+        url = URI.create("http://localhost:" + receiver.getAddress().getPort() + "/v1/metrics");
+    }
+
+    @AfterEach
+    public void teardown() {
+        receiver.stop(0);
+    }
+
+    @Test
+    public void testPushChangedSeries() {
+        AtomicInteger value = new AtomicInteger(1);
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(
+                GaugeSnapshot.builder()
+                        .name("static_gauge")
+                        .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().labels(Labels.of("k", "v")).value(5.0).build())
+                        .build(),
+                CounterSnapshot.builder()
+                        .name("counter")
+                        .dataPoint(CounterSnapshot.CounterDataPointSnapshot.builder().value(value.get()).build())
+                        .build()));
+        DeltaPusher pusher = new DeltaPusher(new PushOptions(url, 10_000L, 1000, 0L), registry, Map.of("service.name", "kafka"), null);
+
+        assertEquals(2, pusher.push());
+        assertEquals(1, requests.size());
+        String request = requests.get(0);
+        assertTrue(request.contains("{\"key\":\"service.name\",\"value\":{\"stringValue\":\"kafka\"}}"));
+        assertTrue(request.contains("\"name\":\"static_gauge\""));
+        assertTrue(request.contains("{\"key\":\"k\",\"value\":{\"stringValue\":\"v\"}}"));
+        assertTrue(request.contains("\"asDouble\":5.0"));
+        assertTrue(request.contains("\"name\":\"counter\",\"description\":\"\",\"sum\":{\"aggregationTemporality\":2,\"isMonotonic\":true"));
+
+        // Nothing changed
+        assertEquals(0, pusher.push());
+        assertEquals(1, requests.size());
+
+        // Only the counter changed
+        value.set(2);
+        assertEquals(1, pusher.push());
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(1).contains("\"name\":\"counter\""));
+        assertTrue(requests.get(1).contains("\"asDouble\":2.0"));
+        assertTrue(!requests.get(1).contains("static_gauge"));
+    }
+
+    @Test
+    public void testChangedQuantiles() {
+        AtomicInteger value = new AtomicInteger(1);
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(SummarySnapshot.builder()
+                .name("summary")
+                .dataPoint(SummarySnapshot.SummaryDataPointSnapshot.builder()
+                        .count(10)
+                        .sum(100.0)
+                        .quantiles(Quantiles.of(new Quantile(0.5, 5.0), new Quantile(0.99, value.get())))
+                        .build())
+                .build()));
+        DeltaPusher pusher = new DeltaPusher(new PushOptions(url, 10_000L, 1000, 0L), registry, Map.of(), null);
+
+        assertEquals(1, pusher.push());
+        assertEquals(0, pusher.push());
+
+        // The count and sum are unchanged but a quantile changed
+        value.set(2);
+        assertEquals(1, pusher.push());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void testFailedPushesAreRetried() {
+        AtomicInteger value = new AtomicInteger(1);
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(GaugeSnapshot.builder()
+                .name("gauge")
+                .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(value.get()).build())
+                .build()));
+        DeltaPusher pusher = new DeltaPusher(new PushOptions(url, 10_000L, 1000, 0L), registry, Map.of(), null);
+
+        status.set(503);
+        assertEquals(0, pusher.push());
+        assertEquals(1, requests.size());
+
+        status.set(200);
+        assertEquals(1, pusher.push());
+        assertEquals(2, requests.size());
+        assertEquals(0, pusher.push());
+    }
+
+    @Test
+    public void testSpool(@TempDir Path spoolDir) throws IOException {
+        AtomicInteger value = new AtomicInteger(1);
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(GaugeSnapshot.builder()
+                .name("gauge")
+                .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(value.get()).build())
+                .build()));
+        PushOptions options = new PushOptions(url, 10_000L, 1000, 0L, spoolDir, 1024 * 1024, 2);
+        DeltaPusher pusher = new DeltaPusher(options, registry, Map.of(), Spool.open(spoolDir, options.spoolMaxBytes));
+
+        // While the receiver is unavailable, each push makes a single attempt and the values are spooled
+        status.set(503);
+        for (int i = 1; i <= 4; i++) {
+            value.set(i);
+            assertEquals(0, pusher.push());
+        }
+        assertEquals(4, requests.size());
+
+        // Once available, spooled requests are replayed oldest first, 2 per push in addition to the request of the
+        // push, which is spooled behind them
+        status.set(200);
+        requests.clear();
+        value.set(5);
+        assertEquals(0, pusher.push());
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(0).contains("\"asDouble\":1.0"));
+        assertTrue(requests.get(1).contains("\"asDouble\":2.0"));
+        assertTrue(requests.get(2).contains("\"asDouble\":3.0"));
+
+        // Once the spool is drained, new values are sent directly
+        value.set(6);
+        assertEquals(1, pusher.push());
+        assertEquals(6, requests.size());
+        assertTrue(requests.get(3).contains("\"asDouble\":4.0"));
+        assertTrue(requests.get(4).contains("\"asDouble\":5.0"));
+        assertTrue(requests.get(5).contains("\"asDouble\":6.0"));
+
+        value.set(7);
+        assertEquals(1, pusher.push());
+        assertEquals(7, requests.size());
+        assertTrue(requests.get(6).contains("\"asDouble\":7.0"));
+    }
+
+    @Test
+    public void testSpoolDrainsWithManyBatches(@TempDir Path spoolDir) throws IOException {
+        // Each push has 5 requests of 1 data point, more than the 2 spooled requests replayed on each push
+        AtomicInteger value = new AtomicInteger(1);
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> {
+            GaugeSnapshot.Builder builder = GaugeSnapshot.builder().name("gauge");
+            for (int i = 0; i < 5; i++) {
+                builder.dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().labels(Labels.of("k", "v" + i)).value(value.get()).build());
+            }
+            return MetricSnapshots.of(builder.build());
+        });
+        PushOptions options = new PushOptions(url, 10_000L, 1, 0L, spoolDir, 1024 * 1024, 2);
+        Spool spool = Spool.open(spoolDir, options.spoolMaxBytes);
+        DeltaPusher pusher = new DeltaPusher(options, registry, Map.of(), spool);
+
+        status.set(503);
+        for (int i = 1; i <= 3; i++) {
+            value.set(i);
+            pusher.push();
+        }
+
+        // The 15 spooled requests shrink by 2 on each push while each push adds and replays 5 requests
+        status.set(200);
+        for (int i = 4; i <= 11 && !spool.isEmpty(); i++) {
+            value.set(i);
+            pusher.push();
+        }
+        assertTrue(spool.isEmpty());
+        value.set(12);
+        assertEquals(5, pusher.push());
+        spool.close();
+    }
+
+    @Test
+    public void testRejectedSpooledRequests(@TempDir Path spoolDir) throws IOException {
+        AtomicInteger value = new AtomicInteger(1);
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(GaugeSnapshot.builder()
+                .name("gauge")
+                .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(value.get()).build())
+                .build()));
+        PushOptions options = new PushOptions(url, 10_000L, 1000, 0L, spoolDir, 1024 * 1024, 2);
+        Spool spool = Spool.open(spoolDir, options.spoolMaxBytes);
+        DeltaPusher pusher = new DeltaPusher(options, registry, Map.of(), spool);
+
+        // Throttled requests are spooled
+        status.set(429);
+        assertEquals(0, pusher.push());
+        assertFalse(spool.isEmpty());
+
+        // Spooled requests rejected by the receiver are dropped instead of blocking the spool
+        status.set(400);
+        value.set(2);
+        assertEquals(0, pusher.push());
+        assertTrue(spool.isEmpty());
+        assertEquals(3, requests.size());
+
+        status.set(200);
+        assertEquals(1, pusher.push());
+        assertTrue(requests.get(3).contains("\"asDouble\":2.0"));
+        spool.close();
+    }
+
+    @Test
+    public void testBatches() {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> {
+            GaugeSnapshot.Builder builder = GaugeSnapshot.builder().name("gauge");
+            for (int i = 0; i < 25; i++) {
+                builder.dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().labels(Labels.of("i", String.valueOf(i))).value(i).build());
+            }
+            return MetricSnapshots.of(builder.build());
+        });
+        DeltaPusher pusher = new DeltaPusher(new PushOptions(url, 10_000L, 10, 0L), registry, Map.of(), null);
+
+        assertEquals(25, pusher.push());
+        assertEquals(3, requests.size());
+        for (String request : requests) {
+            assertTrue(request.startsWith("{\"resourceMetrics\":[{"));
+            assertTrue(request.endsWith("]}]}]}"));
+        }
+    }
+
+    @Test
+    public void testResendInterval() throws InterruptedException {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(GaugeSnapshot.builder()
+                .name("gauge")
+                .dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder().value(1.0).build())
+                .build()));
+        DeltaPusher pusher = new DeltaPusher(new PushOptions(url, 10_000L, 1000, 1L), registry, Map.of(), null);
+
+        assertEquals(1, pusher.push());
+        Thread.sleep(5);
+        assertEquals(1, pusher.push());
+    }
+
+    @Test
+    public void testNativeHistogram() {
+        PrometheusRegistry registry = new PrometheusRegistry();
+        registry.register(() -> MetricSnapshots.of(HistogramSnapshot.builder()
+                .name("latency")
+                .dataPoint(HistogramSnapshot.HistogramDataPointSnapshot.builder()
+                        .sum(6.0)
+                        .nativeSchema(0)
+                        .nativeZeroCount(1)
+                        .nativeBucketsForPositiveValues(NativeHistogramBuckets.builder().bucket(1, 1).bucket(3, 2).build())
+                        .build())
+                .build()));
+        DeltaPusher pusher = new DeltaPusher(new PushOptions(url, 10_000L, 1000, 0L), registry, Map.of(), null);
+
+        assertEquals(1, pusher.push());
+        String request = requests.get(0);
+        assertTrue(request.contains("\"exponentialHistogram\":{\"aggregationTemporality\":2"));
+        assertTrue(request.contains("\"count\":\"4\",\"sum\":6.0,\"scale\":0,\"zeroCount\":\"1\""));
+        // Prometheus bucket 1 is (1, 2] which is OTLP bucket 0
+        assertTrue(request.contains("\"positive\":{\"offset\":0,\"bucketCounts\":[\"1\",\"0\",\"2\"]}"));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.push;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testAppendAndRemove() throws IOException {
+        Spool spool = Spool.open(dir, 1024 * 1024);
+        assertTrue(spool.isEmpty());
+        assertTrue(spool.peek().isEmpty());
+
+        spool.append(bytes("r1"));
+        spool.append(bytes("r2"));
+        assertEquals("r1", string(spool.peek().get()));
+        assertEquals("r1", string(spool.peek().get()));
+        spool.remove();
+        assertEquals("r2", string(spool.peek().get()));
+        spool.remove();
+        assertTrue(spool.peek().isEmpty());
+        assertTrue(spool.isEmpty());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        Spool spool = Spool.open(dir, 1024 * 1024);
+        spool.append(bytes("r1"));
+        spool.append(bytes("r2"));
+        spool.remove();
+        spool.close();
+
+        spool = Spool.open(dir, 1024 * 1024);
+        assertEquals("r2", string(spool.peek().get()));
+        spool.append(bytes("r3"));
+        spool.remove();
+        assertEquals("r3", string(spool.peek().get()));
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        // 4 segments of 64KB
+        Spool spool = Spool.open(dir, 256 * 1024);
+        byte[] record = new byte[30 * 1024];
+        for (int i = 0; i < 10; i++) {
+            record[0] = (byte) i;
+            spool.append(record);
+        }
+        // Each segment holds 2 records, so the oldest segment was evicted
+        assertEquals(4, spool.segments());
+        assertEquals(2, spool.peek().get()[0]);
+
+        // Records larger than a segment are dropped
+        assertFalse(spool.append(new byte[128 * 1024]));
+        assertEquals(4, spool.segments());
+
+        int records = 0;
+        while (spool.peek().isPresent()) {
+            spool.remove();
+            records++;
+        }
+        assertEquals(8, records);
+        assertEquals(1, spool.segments());
+    }
+
+    @Test
+    public void testLock() throws IOException {
+        Spool spool = Spool.open(dir, 1024 * 1024);
+        assertThrows(IOException.class, () -> Spool.open(dir, 1024 * 1024));
+
+        // Once closed, the directory can be used by another spool and the closed spool drops requests
+        spool.close();
+        assertFalse(spool.append(bytes("r1")));
+        Spool.open(dir, 1024 * 1024).close();
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        Spool spool = Spool.open(dir, 1024 * 1024);
+        spool.append(bytes("r1"));
+        spool.append(bytes("r2"));
+        spool.append(bytes("r3"));
+        spool.close();
+
+        // Change the last byte of r2, each record is made of its length, CRC and bytes after the segment header
+        Path segment = segmentFile();
+        byte[] content = Files.readAllBytes(segment);
+        content[8 + 10 + 8 + 1] = 'x';
+        Files.write(segment, content);
+
+        spool = Spool.open(dir, 1024 * 1024);
+        assertEquals("r1", string(spool.peek().get()));
+        spool.remove();
+        // The rest of the segment is skipped
+        assertTrue(spool.peek().isEmpty());
+        assertTrue(spool.isEmpty());
+        assertTrue(spool.append(bytes("r4")));
+        assertEquals("r4", string(spool.peek().get()));
+        spool.close();
+    }
+
+    @Test
+    public void testCorruptedLength() throws IOException {
+        for (int length : new int[] {-1, 1000}) {
+            Spool spool = Spool.open(dir, 1024 * 1024);
+            spool.append(bytes("r1"));
+            spool.close();
+
+            Path segment = segmentFile();
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, length), 8);
+            }
+            spool = Spool.open(dir, 1024 * 1024);
+            assertTrue(spool.peek().isEmpty());
+            spool.remove();
+            assertTrue(spool.isEmpty());
+            spool.close();
+        }
+    }
+
+    private Path segmentFile() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(".spool")).findFirst().orElseThrow();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
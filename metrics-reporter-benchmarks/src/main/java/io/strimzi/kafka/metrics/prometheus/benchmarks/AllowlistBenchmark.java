@@ -0,0 +1,84 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of adding metrics to a reporter, which matches each metric against the allowlist. The allowlist has a number
+ * of entries similar to the ones used in production and the metrics only match the last entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AllowlistBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int seriesCount;
+
+    @Param({"2", "6"})
+    int labelCount;
+
+    @Param({"1", "20", "100"})
+    int allowlistEntries;
+
+    private MetricNameMatcher allowlist;
+    private KafkaMetricWrapper[] metrics;
+
+    /**
+     * Build the allowlist and the metrics
+     */
+    @Setup
+    public void setup() {
+        List<String> entries = new ArrayList<>();
+        for (int i = 1; i < allowlistEntries; i++) {
+            // Mix prefixes with a few entries that are regular expressions
+            entries.add(i % 10 == 0 ? "kafka_server_(other|another)" + i + "_.*" : "kafka_server_other" + i + "_.*");
+        }
+        entries.add("kafka_server_group_metric.*");
+        allowlist = MetricNameMatcher.compile(entries);
+
+        metrics = new KafkaMetricWrapper[seriesCount];
+        for (int i = 0; i < seriesCount; i++) {
+            KafkaMetric metric = BenchmarkMetrics.newKafkaMetric(i, labelCount);
+            String prometheusName = KafkaMetricWrapper.prometheusName("kafka_server", metric.metricName());
+            metrics[i] = new KafkaMetricWrapper(prometheusName, metric, metric.metricName().name());
+        }
+    }
+
+    /**
+     * Add all the metrics to a new reporter
+     * @return The reporter
+     */
+    @Benchmark
+    public AbstractReporter addMetrics() {
+        AbstractReporter reporter = BenchmarkMetrics.newReporter(allowlist);
+        for (KafkaMetricWrapper metric : metrics) {
+            reporter.addMetric(metric.metric(), metric);
+        }
+        return reporter;
+    }
+}
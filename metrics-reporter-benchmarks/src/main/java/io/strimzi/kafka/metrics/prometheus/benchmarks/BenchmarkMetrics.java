@@ -0,0 +1,109 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.utils.Time;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helpers to build the metrics used by the benchmarks. Series are spread over families of
+ * {@link #SERIES_PER_FAMILY} series, which roughly matches the shape of the per-partition and per-client metrics.
+ */
+public class BenchmarkMetrics {
+
+    /**
+     * Number of series in each metric family
+     */
+    public static final int SERIES_PER_FAMILY = 100;
+
+    private BenchmarkMetrics() { }
+
+    /**
+     * The name of the family a series belongs to
+     * @param series The index of the series
+     * @return The name of the family
+     */
+    public static String familyName(int series) {
+        return "metric" + (series / SERIES_PER_FAMILY);
+    }
+
+    /**
+     * The tags of a series
+     * @param series The index of the series
+     * @param labelCount The number of tags
+     * @return The tags
+     */
+    public static Map<String, String> tags(int series, int labelCount) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("series", String.valueOf(series));
+        for (int i = 1; i < labelCount; i++) {
+            tags.put("label" + i, "value" + i);
+        }
+        return tags;
+    }
+
+    /**
+     * The Yammer scope of a series
+     * @param series The index of the series
+     * @param labelCount The number of labels in the scope
+     * @return The scope
+     */
+    public static String scope(int series, int labelCount) {
+        StringBuilder scope = new StringBuilder();
+        for (Map.Entry<String, String> tag : tags(series, labelCount).entrySet()) {
+            if (scope.length() > 0) {
+                scope.append('.');
+            }
+            scope.append(tag.getKey()).append('.').append(tag.getValue());
+        }
+        return scope.toString();
+    }
+
+    /**
+     * Create a Kafka gauge
+     * @param series The index of the series
+     * @param labelCount The number of tags
+     * @return The Kafka metric
+     */
+    public static KafkaMetric newKafkaMetric(int series, int labelCount) {
+        Gauge<Double> gauge = (config, now) -> (double) now;
+        return new KafkaMetric(
+                new Object(),
+                new MetricName(familyName(series), "group", "", tags(series, labelCount)),
+                gauge,
+                new MetricConfig(),
+                Time.SYSTEM);
+    }
+
+    /**
+     * Create a reporter with a fixed allowlist
+     * @param allowlist The allowlist
+     * @return The reporter
+     */
+    public static AbstractReporter newReporter(MetricNameMatcher allowlist) {
+        return new AbstractReporter() {
+            @Override
+            protected MetricNameMatcher allowlist() {
+                return allowlist;
+            }
+
+            @Override
+            protected MetricWrapper metricWrapper(Object name, String prometheusName, Object metric) {
+                KafkaMetric kafkaMetric = (KafkaMetric) metric;
+                return new KafkaMetricWrapper(prometheusName, kafkaMetric, kafkaMetric.metricName().name());
+            }
+        };
+    }
+}
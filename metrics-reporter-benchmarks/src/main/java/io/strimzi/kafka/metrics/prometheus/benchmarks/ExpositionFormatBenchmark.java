@@ -0,0 +1,101 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.prometheus.metrics.expositionformats.ExpositionFormatWriter;
+import io.prometheus.metrics.expositionformats.ExpositionFormats;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.prometheus.metrics.model.snapshots.MetricSnapshots;
+import io.strimzi.kafka.metrics.prometheus.http.ExpositionFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization cost of each exposition format for a synthetic registry with 100k series. The size of the responses
+ * is printed during setup, with and without gzip compression, to compare the bytes sent on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExpositionFormatBenchmark {
+
+    private static final int FAMILIES = 1000;
+
+    @Param({"TEXT", "OPENMETRICS", "PROTOBUF"})
+    ExpositionFormat format;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    private MetricSnapshots snapshots;
+    private ExpositionFormatWriter writer;
+    private ByteArrayOutputStream output;
+
+    /**
+     * Build the snapshots and select the writer
+     * @throws IOException if the metrics can't be written
+     */
+    @Setup
+    public void setup() throws IOException {
+        List<MetricSnapshot> families = new ArrayList<>(FAMILIES);
+        for (int f = 0; f < FAMILIES; f++) {
+            String name = BenchmarkMetrics.familyName(f * BenchmarkMetrics.SERIES_PER_FAMILY);
+            GaugeSnapshot.Builder builder = GaugeSnapshot.builder()
+                    .name(name)
+                    .help("Use " + name + " in allowlist");
+            for (int s = 0; s < BenchmarkMetrics.SERIES_PER_FAMILY; s++) {
+                builder.dataPoint(GaugeSnapshot.GaugeDataPointSnapshot.builder()
+                        .labels(Labels.of("client_id", "client-" + s, "topic", "topic-" + s, "partition", String.valueOf(s)))
+                        .value(s)
+                        .build());
+            }
+            families.add(builder.build());
+        }
+        snapshots = new MetricSnapshots(families);
+        writer = ExpositionFormats.init().findWriter(format.accept());
+        output = new ByteArrayOutputStream(1 << 24);
+        System.out.printf("%n%s gzip=%s: %d bytes%n", format, gzip, write());
+    }
+
+    /**
+     * Serialize the snapshots
+     * @return The size of the response
+     * @throws IOException if the metrics can't be written
+     */
+    @Benchmark
+    public int write() throws IOException {
+        output.reset();
+        if (gzip) {
+            try (OutputStream os = new GZIPOutputStream(output, 1 << 16)) {
+                writer.write(os, snapshots);
+            }
+        } else {
+            writer.write(output, snapshots);
+        }
+        return output.size();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaCollector;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of collecting Kafka metrics for a scrape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KafkaCollectorBenchmark {
+
+    @Param({"1000", "10000", "100000", "500000"})
+    int seriesCount;
+
+    @Param({"2", "6"})
+    int labelCount;
+
+    private KafkaCollector collector;
+
+    /**
+     * Register the metrics
+     */
+    @Setup
+    public void setup() {
+        collector = new KafkaCollector(new PrometheusCollector());
+        AbstractReporter reporter = BenchmarkMetrics.newReporter(MetricNameMatcher.compile(List.of(".*")));
+        collector.addReporter(reporter);
+        for (int i = 0; i < seriesCount; i++) {
+            KafkaMetric metric = BenchmarkMetrics.newKafkaMetric(i, labelCount);
+            String prometheusName = KafkaMetricWrapper.prometheusName("kafka_server", metric.metricName());
+            reporter.addMetric(metric.metricName(), new KafkaMetricWrapper(prometheusName, metric, metric.metricName().name()));
+        }
+    }
+
+    /**
+     * Collect all the metrics
+     * @return The snapshots
+     */
+    @Benchmark
+    public List<MetricSnapshot> collect() {
+        return collector.collect();
+    }
+}
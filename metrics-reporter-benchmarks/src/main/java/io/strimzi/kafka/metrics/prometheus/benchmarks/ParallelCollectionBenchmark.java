@@ -0,0 +1,106 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaCollector;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.utils.Time;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of collecting Kafka metrics registered by many reporters, like the connectors and tasks of a Connect worker,
+ * with the reporters collected sequentially or in parallel. All the reporters register the same families with a
+ * different task label, so the families are merged across reporters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelCollectionBenchmark {
+
+    @Param({"100", "1000"})
+    int reporterCount;
+
+    @Param({"200"})
+    int seriesPerReporter;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    private KafkaCollector collector;
+
+    /**
+     * Register the metrics
+     */
+    @Setup
+    public void setup() {
+        collector = new KafkaCollector(new PrometheusCollector());
+        collector.setParallelism(parallelism);
+        MetricNameMatcher allowlist = MetricNameMatcher.compile(List.of(".*"));
+        for (int r = 0; r < reporterCount; r++) {
+            AbstractReporter reporter = BenchmarkMetrics.newReporter(allowlist);
+            collector.addReporter(reporter);
+            for (int i = 0; i < seriesPerReporter; i++) {
+                KafkaMetric metric = newKafkaMetric(r, i);
+                String prometheusName = KafkaMetricWrapper.prometheusName("kafka_connect", metric.metricName());
+                reporter.addMetric(metric.metricName(), new KafkaMetricWrapper(prometheusName, metric, metric.metricName().name()));
+            }
+        }
+    }
+
+    /**
+     * Stop the collection threads
+     */
+    @TearDown
+    public void tearDown() {
+        collector.setParallelism(1);
+    }
+
+    private static KafkaMetric newKafkaMetric(int reporter, int series) {
+        Map<String, String> tags = BenchmarkMetrics.tags(series, 2);
+        tags.put("task", String.valueOf(reporter));
+        Gauge<Double> gauge = (config, now) -> (double) now;
+        return new KafkaMetric(
+                new Object(),
+                new MetricName(BenchmarkMetrics.familyName(series), "group", "", tags),
+                gauge,
+                new MetricConfig(),
+                Time.SYSTEM);
+    }
+
+    /**
+     * Collect all the metrics
+     * @return The snapshots
+     */
+    @Benchmark
+    public List<MetricSnapshot> collect() {
+        return collector.collect();
+    }
+}
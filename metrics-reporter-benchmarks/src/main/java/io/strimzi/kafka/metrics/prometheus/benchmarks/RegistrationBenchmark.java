@@ -0,0 +1,80 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of registering Kafka metrics, like when a broker loads its partitions at startup. Each family has
+ * {@link BenchmarkMetrics#SERIES_PER_FAMILY} series, so most metrics share their Prometheus name with other metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    @Param({"10000", "100000"})
+    int seriesCount;
+
+    private final MetricNameMatcher allowlist = MetricNameMatcher.compile(List.of(".*"));
+    private KafkaMetric[] metrics;
+
+    /**
+     * Create the metrics
+     */
+    @Setup
+    public void setup() {
+        metrics = new KafkaMetric[seriesCount];
+        for (int i = 0; i < seriesCount; i++) {
+            metrics[i] = BenchmarkMetrics.newKafkaMetric(i, 2);
+        }
+    }
+
+    /**
+     * Derive the Prometheus names of all the metrics
+     * @param blackhole The blackhole consuming the names
+     */
+    @Benchmark
+    public void prometheusNames(Blackhole blackhole) {
+        for (KafkaMetric metric : metrics) {
+            blackhole.consume(KafkaMetricWrapper.prometheusName("kafka_server", metric.metricName()));
+        }
+    }
+
+    /**
+     * Register all the metrics in a new reporter
+     * @return The reporter
+     */
+    @Benchmark
+    public AbstractReporter register() {
+        AbstractReporter reporter = BenchmarkMetrics.newReporter(allowlist);
+        for (KafkaMetric metric : metrics) {
+            String prometheusName = KafkaMetricWrapper.prometheusName("kafka_server", metric.metricName());
+            reporter.addMetric(metric.metricName(), new KafkaMetricWrapper(prometheusName, metric, metric.metricName().name()));
+        }
+        return reporter;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import io.prometheus.metrics.expositionformats.ExpositionFormatWriter;
+import io.prometheus.metrics.expositionformats.ExpositionFormats;
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaCollector;
+import io.strimzi.kafka.metrics.prometheus.kafka.KafkaMetricWrapper;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of a scrape in the Prometheus text format: collecting the metrics from the registry and
+ * serializing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1000", "10000", "100000", "500000"})
+    int seriesCount;
+
+    @Param({"2", "6"})
+    int labelCount;
+
+    private PrometheusRegistry registry;
+    private ExpositionFormatWriter writer;
+    private ByteArrayOutputStream output;
+
+    /**
+     * Register the metrics
+     */
+    @Setup
+    public void setup() {
+        registry = new PrometheusRegistry();
+        KafkaCollector collector = new KafkaCollector(PrometheusCollector.register(registry));
+        AbstractReporter reporter = BenchmarkMetrics.newReporter(MetricNameMatcher.compile(List.of(".*")));
+        collector.addReporter(reporter);
+        for (int i = 0; i < seriesCount; i++) {
+            KafkaMetric metric = BenchmarkMetrics.newKafkaMetric(i, labelCount);
+            String prometheusName = KafkaMetricWrapper.prometheusName("kafka_server", metric.metricName());
+            reporter.addMetric(metric.metricName(), new KafkaMetricWrapper(prometheusName, metric, metric.metricName().name()));
+        }
+        writer = ExpositionFormats.init().getPrometheusTextFormatWriter();
+        output = new ByteArrayOutputStream(seriesCount * 128);
+    }
+
+    /**
+     * Scrape the registry and write the text format
+     * @return The size of the response
+     * @throws IOException if the metrics can't be written
+     */
+    @Benchmark
+    public int scrapeText() throws IOException {
+        output.reset();
+        writer.write(output, registry.scrape());
+        return output.size();
+    }
+}
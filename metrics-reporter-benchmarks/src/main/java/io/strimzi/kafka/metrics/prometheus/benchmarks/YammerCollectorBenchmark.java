@@ -0,0 +1,131 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.benchmarks;
+
+import com.yammer.metrics.core.Histogram;
+import com.yammer.metrics.core.Metric;
+import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import com.yammer.metrics.core.Timer;
+import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.yammer.YammerCollector;
+import io.strimzi.kafka.metrics.prometheus.yammer.YammerMetricWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of collecting Yammer metrics for a scrape. Timers and histograms are sampled so this also covers the cost of
+ * computing the quantiles from their reservoirs.
+ */
+@SuppressWarnings("ClassFanOutComplexity")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class YammerCollectorBenchmark {
+
+    /**
+     * The type of Yammer metrics to collect
+     */
+    public enum MetricType {
+        /**
+         * Counters
+         */
+        COUNTER,
+        /**
+         * Histograms with a full reservoir
+         */
+        HISTOGRAM,
+        /**
+         * Timers with a full reservoir
+         */
+        TIMER
+    }
+
+    @Param({"1000", "10000", "100000", "500000"})
+    int seriesCount;
+
+    @Param({"2", "6"})
+    int labelCount;
+
+    @Param({"COUNTER", "HISTOGRAM", "TIMER"})
+    MetricType metricType;
+
+    private MetricsRegistry registry;
+    private YammerCollector collector;
+
+    /**
+     * Register the metrics
+     */
+    @Setup
+    public void setup() {
+        registry = new MetricsRegistry();
+        collector = new YammerCollector(new PrometheusCollector());
+        AbstractReporter reporter = BenchmarkMetrics.newReporter(MetricNameMatcher.compile(List.of(".*")));
+        collector.addReporter(reporter);
+        Random random = new Random(0);
+        for (int i = 0; i < seriesCount; i++) {
+            String scope = BenchmarkMetrics.scope(i, labelCount);
+            MetricName name = new MetricName("kafka.server", "BenchmarkMetrics", BenchmarkMetrics.familyName(i), scope);
+            Metric metric = newMetric(name, random);
+            reporter.addMetric(name, new YammerMetricWrapper(YammerMetricWrapper.prometheusName(name), scope, metric, name.getName()));
+        }
+    }
+
+    private Metric newMetric(MetricName name, Random random) {
+        switch (metricType) {
+            case HISTOGRAM:
+                Histogram histogram = registry.newHistogram(name, true);
+                for (int i = 0; i < 1028; i++) {
+                    histogram.update(random.nextInt(1000));
+                }
+                return histogram;
+            case TIMER:
+                Timer timer = registry.newTimer(name, TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+                for (int i = 0; i < 1028; i++) {
+                    timer.update(random.nextInt(1000), TimeUnit.MILLISECONDS);
+                }
+                return timer;
+            default:
+                return registry.newCounter(name);
+        }
+    }
+
+    /**
+     * Stop the Yammer threads
+     */
+    @TearDown
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    /**
+     * Collect all the metrics
+     * @return The snapshots
+     */
+    @Benchmark
+    public List<MetricSnapshot> collect() {
+        return collector.collect();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.yammer;
+
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.strimzi.kafka.metrics.prometheus.benchmarks.BenchmarkMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing Yammer scopes into Prometheus labels. This is in the yammer package to access
+ * {@link YammerMetricWrapper#labelsFromScope(String, String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LabelsFromScopeBenchmark {
+
+    @Param({"1000", "100000"})
+    int seriesCount;
+
+    @Param({"2", "6"})
+    int labelCount;
+
+    private String[] scopes;
+
+    /**
+     * Build the scopes
+     */
+    @Setup
+    public void setup() {
+        scopes = new String[seriesCount];
+        for (int i = 0; i < seriesCount; i++) {
+            scopes[i] = BenchmarkMetrics.scope(i, labelCount);
+        }
+    }
+
+    /**
+     * Parse all the scopes
+     * @param blackhole The blackhole consuming the labels
+     */
+    @Benchmark
+    public void labelsFromScope(Blackhole blackhole) {
+        for (String scope : scopes) {
+            Labels labels = YammerMetricWrapper.labelsFromScope(scope, "metric");
+            blackhole.consume(labels);
+        }
+    }
+}
@@ -7,6 +7,10 @@ package io.strimzi.kafka.metrics.prometheus;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
 import io.prometheus.metrics.model.snapshots.PrometheusNaming;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.common.SeriesLimits;
 import io.strimzi.kafka.metrics.prometheus.kafka.KafkaCollector;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.metrics.MetricsContext;
@@ -15,7 +19,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * MetricsReporter implementation that expose Kafka server metrics in the Prometheus format.
@@ -35,14 +38,18 @@ public class ServerKafkaMetricsReporter extends ClientMetricsReporter {
     }
 
     // for testing
-    ServerKafkaMetricsReporter(PrometheusRegistry registry, KafkaCollector kafkaCollector) {
-        super(registry, kafkaCollector);
+    ServerKafkaMetricsReporter(PrometheusRegistry registry, PrometheusCollector prometheusCollector, KafkaCollector kafkaCollector) {
+        super(registry, prometheusCollector, kafkaCollector);
     }
 
     @Override
     public void configure(Map<String, ?> map) {
         config = new ServerMetricsReporterConfig(map, registry);
+        prometheusCollector.setScrapeCacheMs(config.scrapeCacheMs());
+        prometheusCollector.setCollectionIntervalMs(config.collectionIntervalMs());
+        kafkaCollector.setParallelism(config.collectionParallelism());
         httpServer = config.startHttpServer();
+        pusher = config.startPusher();
         LOG.debug("ServerKafkaMetricsReporter configured with {}", config);
     }
 
@@ -78,7 +85,22 @@ public class ServerKafkaMetricsReporter extends ClientMetricsReporter {
     }
 
     @Override
-    protected Pattern allowlist() {
+    protected MetricNameMatcher allowlist() {
         return config.allowlist();
     }
+
+    @Override
+    protected MetricNameMatcher denylist() {
+        return config.denylist();
+    }
+
+    @Override
+    protected LabelFilter labelFilter() {
+        return config.labelFilter();
+    }
+
+    @Override
+    protected SeriesLimits seriesLimits() {
+        return config.seriesLimits();
+    }
 }
@@ -4,14 +4,19 @@
  */
 package io.strimzi.kafka.metrics.prometheus;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
+import io.strimzi.kafka.metrics.prometheus.yammer.HistogramMode;
+import io.strimzi.kafka.metrics.prometheus.yammer.QuantileSelector;
 import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
 * Configuration for the PrometheusMetricsReporter implementation.
@@ -23,9 +28,57 @@ public class ServerMetricsReporterConfig extends ClientMetricsReporterConfig {
     /**
      * The configurations that are reconfigurable
      */
-    public static final Set<String> RECONFIGURABLES = Set.of(ALLOWLIST_CONFIG);
+    public static final Set<String> RECONFIGURABLES = Set.of(ALLOWLIST_CONFIG, DENYLIST_CONFIG);
 
-    private Pattern allowlist;
+    /**
+     * Configuration key for how the Yammer timers and histograms of brokers and controllers are exported.
+     */
+    public static final String YAMMER_HISTOGRAMS_CONFIG = CONFIG_PREFIX + "yammer.histograms";
+
+    /**
+     * Default value for the Yammer histograms configuration.
+     */
+    public static final String YAMMER_HISTOGRAMS_CONFIG_DEFAULT = "summary";
+    private static final String YAMMER_HISTOGRAMS_CONFIG_DOC = "How the Yammer timers and histograms of brokers and controllers are exported, one of summary, native or both. " +
+            "With native, they are exported as native histograms that can be aggregated across brokers. Yammer metrics only keep a sample of " +
+            "their values, so the new observations are spread over the buckets following the sample and the buckets are approximations. With both, the native histograms " +
+            "are exported alongside the summaries with the _histogram suffix.";
+
+    /**
+     * Configuration key for the quantiles of the Yammer timers and histograms of brokers and controllers.
+     */
+    public static final String YAMMER_QUANTILES_CONFIG = CONFIG_PREFIX + "yammer.quantiles";
+
+    /**
+     * Default value for the Yammer quantiles configuration.
+     */
+    public static final String YAMMER_QUANTILES_CONFIG_DEFAULT = "";
+    private static final String YAMMER_QUANTILES_CONFIG_DOC = "A comma separated list of rules in the <metric regex>=<quantile>;<quantile> format. " +
+            "The first rule matching a Yammer timer or histogram of brokers and controllers exported as a summary sets its quantiles. " +
+            "A rule without quantiles only exports the count and sum. Other timers and histograms are exported with the 0.5, 0.75, 0.95, 0.98, 0.99 and 0.999 quantiles.";
+
+    /**
+     * Configuration key to enable exporting the rates of the Yammer meters of brokers and controllers.
+     */
+    public static final String YAMMER_METER_RATES_ENABLE_CONFIG = CONFIG_PREFIX + "yammer.meter.rates.enable";
+
+    /**
+     * Default value for the Yammer meter rates configuration.
+     */
+    public static final boolean YAMMER_METER_RATES_ENABLE_CONFIG_DEFAULT = false;
+    private static final String YAMMER_METER_RATES_ENABLE_CONFIG_DOC = "Enable exporting the 1, 5 and 15 minute rates of the Yammer meters of brokers and controllers " +
+            "as gauges with the _rate suffix and a window label. The rates are computed from the counts sampled when metrics are collected.";
+
+    static final ConfigDef CONFIG_DEF = new ConfigDef(ClientMetricsReporterConfig.CONFIG_DEF)
+            .define(YAMMER_HISTOGRAMS_CONFIG, ConfigDef.Type.STRING, YAMMER_HISTOGRAMS_CONFIG_DEFAULT, ConfigDef.ValidString.in("summary", "native", "both"), ConfigDef.Importance.LOW, YAMMER_HISTOGRAMS_CONFIG_DOC)
+            .define(YAMMER_QUANTILES_CONFIG, ConfigDef.Type.LIST, YAMMER_QUANTILES_CONFIG_DEFAULT, ConfigDef.Importance.LOW, YAMMER_QUANTILES_CONFIG_DOC)
+            .define(YAMMER_METER_RATES_ENABLE_CONFIG, ConfigDef.Type.BOOLEAN, YAMMER_METER_RATES_ENABLE_CONFIG_DEFAULT, ConfigDef.Importance.LOW, YAMMER_METER_RATES_ENABLE_CONFIG_DOC);
+
+    private final HistogramMode histogramMode;
+    private final QuantileSelector quantileSelector;
+    private final boolean meterRatesEnabled;
+    private MetricNameMatcher allowlist;
+    private MetricNameMatcher denylist;
 
     /**
      * Constructor.
@@ -33,9 +86,22 @@ public class ServerMetricsReporterConfig extends ClientMetricsReporterConfig {
      * @param props the configuration properties.
      * @param registry the metrics registry
      */
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
     public ServerMetricsReporterConfig(Map<?, ?> props, PrometheusRegistry registry) {
-        super(props, registry);
+        super(CONFIG_DEF, props, registry);
         this.allowlist = compileAllowlist(getList(ALLOWLIST_CONFIG));
+        this.denylist = compileDenylist(getList(DENYLIST_CONFIG));
+        this.histogramMode = HistogramMode.parse(getString(YAMMER_HISTOGRAMS_CONFIG));
+        this.quantileSelector = createQuantileSelector();
+        this.meterRatesEnabled = getBoolean(YAMMER_METER_RATES_ENABLE_CONFIG);
+    }
+
+    private QuantileSelector createQuantileSelector() {
+        try {
+            return QuantileSelector.create(getList(YAMMER_QUANTILES_CONFIG));
+        } catch (IllegalArgumentException iae) {
+            throw new ConfigException("Invalid quantile configuration: " + iae.getMessage());
+        }
     }
 
     /**
@@ -45,20 +111,72 @@ public class ServerMetricsReporterConfig extends ClientMetricsReporterConfig {
     public void reconfigure(Map<String, ?> props) {
         AbstractConfig abstractConfig = new AbstractConfig(CONFIG_DEF, props, false);
         allowlist = compileAllowlist(abstractConfig.getList(ALLOWLIST_CONFIG));
-        LOG.info("Updated allowlist to {}", allowlist);
+        denylist = compileDenylist(abstractConfig.getList(DENYLIST_CONFIG));
+        LOG.info("Updated allowlist to {} and denylist to {}", allowlist, denylist);
     }
 
     @Override
-    public Pattern allowlist() {
+    public boolean isAllowed(String name) {
+        return allowlist.matches(name) && !denylist.matches(name);
+    }
+
+    @Override
+    public MetricNameMatcher allowlist() {
         return allowlist;
     }
 
+    @Override
+    public MetricNameMatcher denylist() {
+        return denylist;
+    }
+
+    /**
+     * How the Yammer timers and histograms are exported.
+     * @return The HistogramMode
+     */
+    public HistogramMode histogramMode() {
+        return histogramMode;
+    }
+
+    /**
+     * The quantiles of the Yammer timers and histograms exported as summaries.
+     * @return The QuantileSelector
+     */
+    public QuantileSelector quantileSelector() {
+        return quantileSelector;
+    }
+
+    /**
+     * Whether the rates of the Yammer meters are exported.
+     * @return true if the rates are exported, otherwise false
+     */
+    public boolean isMeterRatesEnabled() {
+        return meterRatesEnabled;
+    }
+
     @Override
     public String toString() {
         return "ServerMetricsReporterConfig{" +
                 "listener=" + listener +
                 ", listenerEnabled=" + listenerEnabled +
                 ", allowlist=" + allowlist +
+                ", denylist=" + denylist +
+                ", labelsDrop=" + getList(LABELS_DROP_CONFIG) +
+                ", labelsKeep=" + getList(LABELS_KEEP_CONFIG) +
+                ", additiveGauges=" + getList(ADDITIVE_GAUGES_CONFIG) +
+                ", seriesLimits=" + seriesLimits +
+                ", scrapeCacheMs=" + scrapeCacheMs +
+                ", collectionIntervalMs=" + collectionIntervalMs +
+                ", collectionParallelism=" + collectionParallelism +
+                ", listenerCacheEnabled=" + listenerCacheEnabled +
+                ", listenerFormat=" + listenerFormat +
+                ", listenerStreamingEnabled=" + listenerStreamingEnabled +
+                ", listenerVirtualThreadsEnabled=" + listenerVirtualThreadsEnabled +
+                ", listenerMaxInflightRequests=" + listenerMaxInflightRequests +
+                ", pushOptions=" + pushOptions() +
+                ", histogramMode=" + histogramMode +
+                ", quantiles=" + quantileSelector +
+                ", meterRatesEnabled=" + meterRatesEnabled +
                 '}';
     }
 }
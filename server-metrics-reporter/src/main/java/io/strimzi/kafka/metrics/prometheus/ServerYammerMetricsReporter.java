@@ -12,8 +12,11 @@ import com.yammer.metrics.core.MetricsRegistryListener;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
 import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
 import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
+import io.strimzi.kafka.metrics.prometheus.common.SeriesLimits;
 import io.strimzi.kafka.metrics.prometheus.yammer.YammerCollector;
 import io.strimzi.kafka.metrics.prometheus.yammer.YammerMetricWrapper;
 import kafka.metrics.KafkaMetricsReporter;
@@ -24,7 +27,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 /**
  * ServerYammerMetricsReporter to export Yammer broker metrics in the Prometheus format.
@@ -72,6 +74,9 @@ public class ServerYammerMetricsReporter extends AbstractReporter implements Kaf
     @Override
     public void init(VerifiableProperties props) {
         config = new ServerMetricsReporterConfig(props.props(), registry);
+        yammerCollector.setHistogramMode(config.histogramMode());
+        yammerCollector.setQuantileSelector(config.quantileSelector());
+        yammerCollector.setMeterRatesEnabled(config.isMeterRatesEnabled());
         for (MetricsRegistry yammerRegistry : List.of(KafkaYammerMetrics.defaultRegistry(), Metrics.defaultRegistry())) {
             yammerRegistry.addListener(this);
         }
@@ -80,14 +85,12 @@ public class ServerYammerMetricsReporter extends AbstractReporter implements Kaf
 
     @Override
     public void onMetricAdded(MetricName name, Metric metric) {
-        String prometheusName = YammerMetricWrapper.prometheusName(name);
-        MetricWrapper metricWrapper = new YammerMetricWrapper(prometheusName, name.getScope(), metric, name.getName());
-        addMetric(name, metricWrapper);
+        addMetric(name, YammerMetricWrapper.prometheusName(name), metric);
     }
 
     @Override
     public void onMetricRemoved(MetricName name) {
-        removeMetric(name);
+        removeMetric(name, YammerMetricWrapper.prometheusName(name));
     }
 
     /**
@@ -100,10 +103,31 @@ public class ServerYammerMetricsReporter extends AbstractReporter implements Kaf
     }
 
     @Override
-    protected Pattern allowlist() {
+    protected MetricNameMatcher allowlist() {
         return config.allowlist();
     }
 
+    @Override
+    protected MetricNameMatcher denylist() {
+        return config.denylist();
+    }
+
+    @Override
+    protected LabelFilter labelFilter() {
+        return config.labelFilter();
+    }
+
+    @Override
+    protected SeriesLimits seriesLimits() {
+        return config.seriesLimits();
+    }
+
+    @Override
+    protected MetricWrapper metricWrapper(Object name, String prometheusName, Object metric) {
+        MetricName metricName = (MetricName) name;
+        return new YammerMetricWrapper(prometheusName, metricName.getScope(), (Metric) metric, metricName.getName(), labelFilter());
+    }
+
     @Override
     protected boolean isReconfigurable() {
         return true;
@@ -0,0 +1,36 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.yammer;
+
+import java.util.Locale;
+
+/**
+ * How Yammer Timers and Histograms are exported.
+ */
+public enum HistogramMode {
+
+    /**
+     * As summaries with quantiles computed from the Yammer reservoir
+     */
+    SUMMARY,
+    /**
+     * As Prometheus native histograms
+     */
+    NATIVE,
+    /**
+     * As summaries and as native histograms with the {@code _histogram} suffix
+     */
+    BOTH;
+
+    /**
+     * Parse a mode name
+     * @param name The case insensitive name of the mode
+     * @return The mode
+     * @throws IllegalArgumentException if the name is not a known mode
+     */
+    public static HistogramMode parse(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.yammer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rates of a Yammer meter over the last 1, 5 and 15 minutes. They are computed from count samples taken when the meter
+ * is collected, so unlike the rates of the meter itself they don't rely on its exponentially weighted moving averages.
+ * Each window keeps a few samples spaced by a quarter of the window, and the count at the start of the window is
+ * interpolated between the samples around it, so a meter only costs a few dozen longs whatever the collection interval.
+ * Until a window is covered by samples, its rate is computed over the available samples.
+ */
+class MeterRates {
+
+    /**
+     * The windows of the rates
+     */
+    static final long[] WINDOWS_MS = {TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(15)};
+    /**
+     * The values of the window label of the rates
+     */
+    static final String[] WINDOW_LABELS = {"1m", "5m", "15m"};
+
+    // Samples of a window are spaced by a quarter of the window, so a few more samples than that cover the window
+    private static final int SAMPLES_PER_WINDOW = 4;
+    private static final int CAPACITY = SAMPLES_PER_WINDOW + 2;
+
+    // Ring buffers of samples of each window, the samples of window w are at indexes [w * CAPACITY, (w + 1) * CAPACITY)
+    private final long[] times = new long[WINDOWS_MS.length * CAPACITY];
+    private final long[] counts = new long[WINDOWS_MS.length * CAPACITY];
+    // Position of the newest sample and number of samples of each window
+    private final int[] heads = new int[WINDOWS_MS.length];
+    private final int[] sizes = new int[WINDOWS_MS.length];
+
+    /**
+     * Take a sample of the meter and compute its rates
+     * @param nowMs The current time in milliseconds
+     * @param count The current count of the meter
+     * @return The rates per second, in the order of {@link #WINDOWS_MS}
+     */
+    synchronized double[] update(long nowMs, long count) {
+        double[] rates = new double[WINDOWS_MS.length];
+        for (int w = 0; w < WINDOWS_MS.length; w++) {
+            if (sizes[w] > 0 && count < counts[sample(w, 0)]) {
+                // The meter was recreated
+                Arrays.fill(sizes, 0);
+            }
+        }
+        for (int w = 0; w < WINDOWS_MS.length; w++) {
+            rates[w] = rate(w, nowMs, count);
+            if (sizes[w] == 0 || nowMs - times[sample(w, 0)] >= WINDOWS_MS[w] / SAMPLES_PER_WINDOW) {
+                heads[w] = (heads[w] + 1) % CAPACITY;
+                times[sample(w, 0)] = nowMs;
+                counts[sample(w, 0)] = count;
+                sizes[w] = Math.min(sizes[w] + 1, CAPACITY);
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Index of a sample of a window
+     * @param w The window
+     * @param age 0 for the newest sample, 1 for the previous one, and so on
+     */
+    private int sample(int w, int age) {
+        return w * CAPACITY + Math.floorMod(heads[w] - age, CAPACITY);
+    }
+
+    /**
+     * Compute the rate over a window, interpolating the count at the start of the window between the samples around
+     * it, or since the oldest sample if none is older than the window
+     */
+    private double rate(int w, long nowMs, long count) {
+        if (sizes[w] == 0) {
+            return 0.0;
+        }
+        long startMs = nowMs - WINDOWS_MS[w];
+        long newerMs = nowMs;
+        long newerCount = count;
+        for (int age = 0; age < sizes[w]; age++) {
+            int index = sample(w, age);
+            if (times[index] <= startMs) {
+                double startCount = counts[index] + (newerCount - counts[index]) * (double) (startMs - times[index]) / (newerMs - times[index]);
+                return (count - startCount) * 1000.0 / WINDOWS_MS[w];
+            }
+            newerMs = times[index];
+            newerCount = counts[index];
+        }
+        // newerMs and newerCount are now the oldest sample
+        if (nowMs <= newerMs) {
+            return 0.0;
+        }
+        return (count - newerCount) * 1000.0 / (nowMs - newerMs);
+    }
+}
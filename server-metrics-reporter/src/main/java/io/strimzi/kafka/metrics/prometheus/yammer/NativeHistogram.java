@@ -0,0 +1,104 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.yammer;
+
+import com.yammer.metrics.stats.Snapshot;
+import io.prometheus.metrics.model.snapshots.HistogramSnapshot;
+import io.prometheus.metrics.model.snapshots.Labels;
+import io.prometheus.metrics.model.snapshots.NativeHistogramBuckets;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Prometheus native histogram maintained alongside a Yammer reservoir. Yammer only exposes a sample of the recorded
+ * values, so on each collection the observations recorded since the previous collection are spread over the buckets
+ * following the distribution of the current sample, so the buckets are approximations of the actual distribution.
+ * All the observations are added to a bucket so the count of the histogram, which is derived from its buckets, always
+ * matches the count of the Yammer metric. Bucket counts only ever increase, so unlike the quantiles of a summary, the
+ * histograms of several brokers can be aggregated.
+ */
+class NativeHistogram {
+
+    /**
+     * Buckets grow by a factor of 2^(2^-3), about 9%, which keeps the relative error of quantiles below 5%
+     */
+    static final int SCHEMA = 3;
+    private static final double LOG_BASE = Math.log(2) / (1 << SCHEMA);
+
+    private final Map<Integer, Long> positiveBuckets = new TreeMap<>();
+    private final Map<Integer, Long> negativeBuckets = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+    private double sum;
+
+    /**
+     * Add the observations recorded since the previous update and build a data point
+     * @param labels The labels of the data point
+     * @param totalCount The number of observations recorded by the Yammer metric
+     * @param sum The sum of the observations recorded by the Yammer metric
+     * @param snapshot The current sample of the Yammer reservoir
+     * @return The histogram data point
+     */
+    synchronized HistogramSnapshot.HistogramDataPointSnapshot update(Labels labels, long totalCount, double sum, Snapshot snapshot) {
+        if (totalCount < count) {
+            // The Yammer metric was cleared
+            positiveBuckets.clear();
+            negativeBuckets.clear();
+            zeroCount = 0L;
+            count = 0L;
+            this.sum = 0.0;
+        }
+        double[] values = snapshot.getValues();
+        long observations = totalCount - count;
+        if (observations > 0) {
+            if (values.length > 0) {
+                for (int i = 0; i < values.length; i++) {
+                    // Integer shares of the new observations that add up to exactly their number
+                    long share = observations * (i + 1) / values.length - observations * i / values.length;
+                    if (share > 0) {
+                        add(values[i], share);
+                    }
+                }
+            } else {
+                // Without a sample, the new observations are approximated by their mean
+                add((sum - this.sum) / observations, observations);
+            }
+            count = totalCount;
+            this.sum = sum;
+        }
+        return HistogramSnapshot.HistogramDataPointSnapshot.builder()
+                .labels(labels)
+                .sum(sum)
+                .nativeSchema(SCHEMA)
+                .nativeZeroCount(zeroCount)
+                .nativeBucketsForPositiveValues(buckets(positiveBuckets))
+                .nativeBucketsForNegativeValues(buckets(negativeBuckets))
+                .build();
+    }
+
+    private void add(double value, long share) {
+        if (value > 0) {
+            positiveBuckets.merge(index(value), share, Long::sum);
+        } else if (value < 0) {
+            negativeBuckets.merge(index(-value), share, Long::sum);
+        } else {
+            zeroCount += share;
+        }
+    }
+
+    /**
+     * The bucket with index i contains the values in (base^(i-1), base^i]
+     */
+    /* test */ static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_BASE);
+    }
+
+    private static NativeHistogramBuckets buckets(Map<Integer, Long> counts) {
+        NativeHistogramBuckets.Builder builder = NativeHistogramBuckets.builder();
+        counts.forEach(builder::bucket);
+        return builder.build();
+    }
+}
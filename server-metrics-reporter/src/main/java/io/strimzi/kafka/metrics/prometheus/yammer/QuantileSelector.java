@@ -0,0 +1,121 @@
+/*
+ * Copyright Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.kafka.metrics.prometheus.yammer;
+
+import io.strimzi.kafka.metrics.prometheus.common.BoundedCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the quantiles exported for each Yammer timer and histogram. Rules are entries in the
+ * {@code <metric regex>=<quantile>;<quantile>} format, the first rule matching a metric sets its quantiles. A rule
+ * without quantiles exports only the count and sum of the matching metrics. Metrics not matching any rule are
+ * exported with the default quantiles.
+ */
+public class QuantileSelector {
+
+    /**
+     * The quantiles exported for metrics not matching any rule
+     */
+    static final List<Double> DEFAULT_QUANTILES = List.of(0.50, 0.75, 0.95, 0.98, 0.99, 0.999);
+
+    /**
+     * Selector that exports the default quantiles for all metrics
+     */
+    public static final QuantileSelector DEFAULT = new QuantileSelector(List.of());
+
+    private static final int MAX_CACHED_QUANTILES = 10_000;
+
+    private final List<Entry> entries;
+    private final BoundedCache<String, List<Double>> quantiles = new BoundedCache<>(MAX_CACHED_QUANTILES);
+
+    private QuantileSelector(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Create a quantile selector
+     * @param rules The rules
+     * @return The quantile selector
+     * @throws IllegalArgumentException if a rule is not in the {@code <metric regex>=<quantile>;<quantile>} format,
+     *                                  contains an invalid regex or a quantile outside of [0, 1]
+     */
+    public static QuantileSelector create(List<String> rules) {
+        if (rules.isEmpty()) {
+            return DEFAULT;
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (String rule : rules) {
+            int index = rule.lastIndexOf('=');
+            if (index <= 0) {
+                throw new IllegalArgumentException("Invalid quantile rule " + rule + ", the format is <metric regex>=<quantile>;<quantile>");
+            }
+            entries.add(new Entry(Pattern.compile(rule.substring(0, index)), parseQuantiles(rule.substring(index + 1))));
+        }
+        return new QuantileSelector(entries);
+    }
+
+    private static List<Double> parseQuantiles(String value) {
+        List<Double> quantiles = new ArrayList<>();
+        for (String quantile : value.split(";")) {
+            if (quantile.isBlank()) {
+                continue;
+            }
+            double q = Double.parseDouble(quantile.trim());
+            if (q < 0.0 || q > 1.0) {
+                throw new IllegalArgumentException("Invalid quantile " + quantile + ", quantiles must be between 0 and 1");
+            }
+            quantiles.add(q);
+        }
+        return List.copyOf(quantiles);
+    }
+
+    /**
+     * Retrieve the quantiles for a metric
+     * @param metricName The Prometheus name of the metric
+     * @return The quantiles to export, empty if only the count and sum are exported
+     */
+    public List<Double> forMetric(String metricName) {
+        if (entries.isEmpty()) {
+            return DEFAULT_QUANTILES;
+        }
+        List<Double> selected = quantiles.get(metricName);
+        if (selected == null) {
+            selected = quantiles.putIfAbsent(metricName, select(metricName));
+        }
+        return selected;
+    }
+
+    private List<Double> select(String metricName) {
+        for (Entry entry : entries) {
+            if (entry.pattern.matcher(metricName).matches()) {
+                return entry.quantiles;
+            }
+        }
+        return DEFAULT_QUANTILES;
+    }
+
+    @Override
+    public String toString() {
+        return entries.toString();
+    }
+
+    private static class Entry {
+        private final Pattern pattern;
+        private final List<Double> quantiles;
+
+        private Entry(Pattern pattern, List<Double> quantiles) {
+            this.pattern = pattern;
+            this.quantiles = quantiles;
+        }
+
+        @Override
+        public String toString() {
+            return pattern + "=" + quantiles;
+        }
+    }
+}
@@ -9,9 +9,12 @@ import com.yammer.metrics.core.Gauge;
 import com.yammer.metrics.core.Histogram;
 import com.yammer.metrics.core.Meter;
 import com.yammer.metrics.core.Sampling;
+import com.yammer.metrics.core.Summarizable;
 import com.yammer.metrics.core.Timer;
+import com.yammer.metrics.stats.Snapshot;
 import io.prometheus.metrics.model.snapshots.CounterSnapshot;
 import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.HistogramSnapshot;
 import io.prometheus.metrics.model.snapshots.InfoSnapshot;
 import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.MetricSnapshot;
@@ -20,6 +23,7 @@ import io.prometheus.metrics.model.snapshots.Quantiles;
 import io.prometheus.metrics.model.snapshots.SummarySnapshot;
 import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
 import io.strimzi.kafka.metrics.prometheus.common.DataPointSnapshotBuilder;
+import io.strimzi.kafka.metrics.prometheus.common.MetricFamily;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
 import io.strimzi.kafka.metrics.prometheus.common.MetricsCollector;
 import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
@@ -27,11 +31,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -43,9 +51,18 @@ public class YammerCollector implements MetricsCollector {
     private static final Logger LOG = LoggerFactory.getLogger(YammerCollector.class);
     private static final AtomicBoolean REGISTERED = new AtomicBoolean(false);
     private static final YammerCollector INSTANCE = new YammerCollector();
-    private static final List<Double> QUANTILES = List.of(0.50, 0.75, 0.95, 0.98, 0.99, 0.999);
+    private static final String HISTOGRAM_SUFFIX = "_histogram";
+    private static final String RATE_SUFFIX = "_rate";
+    private static final String WINDOW_LABEL = "window";
 
     private final Set<AbstractReporter> reporters = ConcurrentHashMap.newKeySet();
+    // Native histograms of the Yammer timers and histograms, weakly referenced so they go away with the metrics
+    private final Map<Sampling, NativeHistogram> nativeHistograms = Collections.synchronizedMap(new WeakHashMap<>());
+    // Rates of the Yammer meters, weakly referenced so they go away with the metrics
+    private final Map<Meter, MeterRates> meterRates = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile HistogramMode histogramMode = HistogramMode.SUMMARY;
+    private volatile boolean meterRatesEnabled;
+    private volatile QuantileSelector quantileSelector = QuantileSelector.DEFAULT;
 
     private YammerCollector() {}
 
@@ -78,60 +95,212 @@ public class YammerCollector implements MetricsCollector {
         reporters.add(reporter);
     }
 
+    /**
+     * Set how Yammer timers and histograms are exported.
+     * @param histogramMode The histogram mode
+     */
+    public void setHistogramMode(HistogramMode histogramMode) {
+        this.histogramMode = histogramMode;
+    }
+
+    /**
+     * Set the quantiles exported for the Yammer timers and histograms exported as summaries.
+     * @param quantileSelector The quantile selector
+     */
+    public void setQuantileSelector(QuantileSelector quantileSelector) {
+        this.quantileSelector = quantileSelector;
+    }
+
+    /**
+     * Set whether the 1, 5 and 15 minute rates of the Yammer meters are exported as gauges.
+     * @param meterRatesEnabled true to export the rates, otherwise false
+     */
+    public void setMeterRatesEnabled(boolean meterRatesEnabled) {
+        this.meterRatesEnabled = meterRatesEnabled;
+    }
+
     /**
      * Collect all the metrics added to this Collector
      *
      * @return the list of metrics of this collector
      */
-    @SuppressWarnings({"CyclomaticComplexity", "JavaNCSS"})
     @Override
     public List<MetricSnapshot> collect() {
         Map<String, MetricSnapshot.Builder<?>> builders = new HashMap<>();
         for (AbstractReporter reporter : reporters) {
-            for (MetricWrapper metricWrapper : reporter.allowedMetrics()) {
-                String prometheusMetricName = metricWrapper.prometheusName();
-                Object metric = metricWrapper.metric();
-                Labels labels = metricWrapper.labels();
-                LOG.debug("Collecting Yammer metric {} with the following labels: {}", prometheusMetricName, labels);
-                String helpMessage = "Use " + prometheusMetricName + " in allowlist";
-                if (metric instanceof Counter counter) {
-                    CounterSnapshot.Builder builder = (CounterSnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> CounterSnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                    builder.dataPoint(DataPointSnapshotBuilder.counterDataPoint(labels, counter.count()));
-                } else if (metric instanceof Gauge) {
-                    Object valueObj = ((Gauge<?>) metric).value();
-                    if (valueObj instanceof Number) {
-                        double value = ((Number) valueObj).doubleValue();
-                        GaugeSnapshot.Builder builder = (GaugeSnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> GaugeSnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                        builder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(labels, value));
-                    } else {
-                        InfoSnapshot.Builder builder = (InfoSnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> InfoSnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                        builder.dataPoint(DataPointSnapshotBuilder.infoDataPoint(labels, valueObj, metricWrapper.attribute()));
-                    }
-                } else if (metric instanceof Timer timer) {
-                    SummarySnapshot.Builder builder = (SummarySnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> SummarySnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                    builder.dataPoint(DataPointSnapshotBuilder.summaryDataPoint(labels, timer.count(), timer.sum(), quantiles(timer)));
-                } else if (metric instanceof Histogram histogram) {
-                    SummarySnapshot.Builder builder = (SummarySnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> SummarySnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                    builder.dataPoint(DataPointSnapshotBuilder.summaryDataPoint(labels, histogram.count(), histogram.sum(), quantiles(histogram)));
-                } else if (metric instanceof Meter meter) {
-                    CounterSnapshot.Builder builder = (CounterSnapshot.Builder) builders.computeIfAbsent(prometheusMetricName, k -> CounterSnapshot.builder().name(prometheusMetricName).help(helpMessage));
-                    builder.dataPoint(DataPointSnapshotBuilder.counterDataPoint(labels, meter.count()));
+            for (MetricFamily family : reporter.allowedFamilies()) {
+                // Families with the same name from different reporters are merged into a single snapshot
+                MetricSnapshot.Builder<?> builder = builders.get(family.name());
+                if (family.hasCollisions()) {
+                    builder = collectCollapsed(family, builder, builders);
                 } else {
-                    LOG.error("The metric {} has an unexpected type: {}", prometheusMetricName, metric.getClass().getName());
+                    for (MetricWrapper metricWrapper : family.metrics()) {
+                        builder = collect(family, metricWrapper, builder, builders);
+                    }
+                }
+                if (builder != null) {
+                    builders.put(family.name(), builder);
                 }
             }
         }
-        List<MetricSnapshot> snapshots = new ArrayList<>();
+        List<MetricSnapshot> snapshots = new ArrayList<>(builders.size());
         for (MetricSnapshot.Builder<?> builder : builders.values()) {
             snapshots.add(builder.build());
         }
         return snapshots;
     }
 
-    private static Quantiles quantiles(Sampling sampling) {
+    @Override
+    public OptionalLong rejectedSeries() {
+        boolean limited = false;
+        long rejected = 0L;
+        for (AbstractReporter reporter : reporters) {
+            if (reporter.hasSeriesLimits()) {
+                limited = true;
+                rejected += reporter.rejectedSeries();
+            }
+        }
+        return limited ? OptionalLong.of(rejected) : OptionalLong.empty();
+    }
+
+    /**
+     * Collect a family where some metrics have the same labels. Counters, meters and additive gauges are summed,
+     * otherwise only the first metric with each labels is collected.
+     */
+    private MetricSnapshot.Builder<?> collectCollapsed(MetricFamily family, MetricSnapshot.Builder<?> builder, Map<String, MetricSnapshot.Builder<?>> builders) {
+        for (List<MetricWrapper> series : family.series()) {
+            MetricWrapper first = series.get(0);
+            if (series.size() > 1 && isSummable(family, first.metric())) {
+                double sum = 0;
+                for (MetricWrapper metricWrapper : series) {
+                    sum += value(metricWrapper.metric());
+                }
+                if (first.metric() instanceof Gauge) {
+                    GaugeSnapshot.Builder gaugeBuilder = builder != null ? (GaugeSnapshot.Builder) builder : GaugeSnapshot.builder().name(family.name()).help(family.help());
+                    builder = gaugeBuilder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(first.labels(), sum));
+                } else {
+                    builder = counterBuilder(family, builder).dataPoint(DataPointSnapshotBuilder.counterDataPoint(first.labels(), sum));
+                }
+            } else {
+                builder = collect(family, first, builder, builders);
+            }
+        }
+        return builder;
+    }
+
+    private static boolean isSummable(MetricFamily family, Object metric) {
+        if (metric instanceof Gauge) {
+            return family.isAdditive() && ((Gauge<?>) metric).value() instanceof Number;
+        }
+        return metric instanceof Counter || metric instanceof Meter;
+    }
+
+    private static double value(Object metric) {
+        if (metric instanceof Counter counter) {
+            return counter.count();
+        } else if (metric instanceof Meter meter) {
+            return meter.count();
+        } else if (metric instanceof Gauge && ((Gauge<?>) metric).value() instanceof Number value) {
+            return value.doubleValue();
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("CyclomaticComplexity")
+    private MetricSnapshot.Builder<?> collect(MetricFamily family, MetricWrapper metricWrapper, MetricSnapshot.Builder<?> builder, Map<String, MetricSnapshot.Builder<?>> builders) {
+        Object metric = metricWrapper.metric();
+        Labels labels = metricWrapper.labels();
+        LOG.debug("Collecting Yammer metric {} with the following labels: {}", family.name(), labels);
+        if (metric instanceof Counter counter) {
+            return counterBuilder(family, builder).dataPoint(DataPointSnapshotBuilder.counterDataPoint(labels, counter.count()));
+        } else if (metric instanceof Gauge) {
+            Object valueObj = ((Gauge<?>) metric).value();
+            if (valueObj instanceof Number) {
+                double value = ((Number) valueObj).doubleValue();
+                GaugeSnapshot.Builder gaugeBuilder = builder != null ? (GaugeSnapshot.Builder) builder : GaugeSnapshot.builder().name(family.name()).help(family.help());
+                return gaugeBuilder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(labels, value));
+            } else {
+                InfoSnapshot.Builder infoBuilder = builder != null ? (InfoSnapshot.Builder) builder : InfoSnapshot.builder().name(family.name()).help(family.help());
+                return infoBuilder.dataPoint(DataPointSnapshotBuilder.infoDataPoint(labels, valueObj, metricWrapper.attribute()));
+            }
+        } else if (metric instanceof Timer timer) {
+            return collectSampling(family, labels, timer, timer.count(), timer, builder, builders);
+        } else if (metric instanceof Histogram histogram) {
+            return collectSampling(family, labels, histogram, histogram.count(), histogram, builder, builders);
+        } else if (metric instanceof Meter meter) {
+            long count = meter.count();
+            if (meterRatesEnabled) {
+                collectRates(family, labels, meter, count, builders);
+            }
+            return counterBuilder(family, builder).dataPoint(DataPointSnapshotBuilder.counterDataPoint(labels, count));
+        } else {
+            LOG.error("The metric {} has an unexpected type: {}", family.name(), metric.getClass().getName());
+            return builder;
+        }
+    }
+
+    /**
+     * Collect a timer or histogram according to the histogram mode. In the both mode, the native histogram is added to
+     * the builders of the family with the histogram suffix and the summary is returned.
+     */
+    private MetricSnapshot.Builder<?> collectSampling(MetricFamily family, Labels labels, Sampling sampling, long count, Summarizable summarizable,
+                                                      MetricSnapshot.Builder<?> builder, Map<String, MetricSnapshot.Builder<?>> builders) {
+        HistogramMode mode = histogramMode;
+        List<Double> quantiles = mode != HistogramMode.NATIVE ? quantileSelector.forMetric(family.name()) : List.of();
+        // Retrieving a snapshot copies and sorts the whole reservoir, so only do it once per metric and only if needed
+        Snapshot snapshot = mode != HistogramMode.SUMMARY || !quantiles.isEmpty() ? sampling.getSnapshot() : null;
+        if (mode == HistogramMode.SUMMARY) {
+            return summaryBuilder(family, builder).dataPoint(DataPointSnapshotBuilder.summaryDataPoint(labels, count, summarizable.sum(), quantiles(snapshot, quantiles)));
+        }
+        HistogramSnapshot.HistogramDataPointSnapshot dataPoint = nativeHistograms.computeIfAbsent(sampling, s -> new NativeHistogram())
+                .update(labels, count, summarizable.sum(), snapshot);
+        if (mode == HistogramMode.NATIVE) {
+            return histogramBuilder(family.name(), family.help(), builder).dataPoint(dataPoint);
+        }
+        String histogramName = family.name() + HISTOGRAM_SUFFIX;
+        builders.put(histogramName, histogramBuilder(histogramName, family.help(), builders.get(histogramName)).dataPoint(dataPoint));
+        return summaryBuilder(family, builder).dataPoint(DataPointSnapshotBuilder.summaryDataPoint(labels, count, summarizable.sum(), quantiles(snapshot, quantiles)));
+    }
+
+    /**
+     * Add the rates of a meter to the builders of the family with the rate suffix, with a window label for each rate.
+     * If the meter already has a window label, the label of the rates is prefixed with rate_ so they stay distinct.
+     */
+    private void collectRates(MetricFamily family, Labels labels, Meter meter, long count, Map<String, MetricSnapshot.Builder<?>> builders) {
+        double[] rates = meterRates.computeIfAbsent(meter, m -> new MeterRates()).update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()), count);
+        String windowLabel = labels.contains(WINDOW_LABEL) ? "rate_" + WINDOW_LABEL : WINDOW_LABEL;
+        String rateName = family.name() + RATE_SUFFIX;
+        MetricSnapshot.Builder<?> builder = builders.get(rateName);
+        GaugeSnapshot.Builder gaugeBuilder = builder != null ? (GaugeSnapshot.Builder) builder : GaugeSnapshot.builder().name(rateName).help(family.help());
+        for (int i = 0; i < rates.length; i++) {
+            gaugeBuilder.dataPoint(DataPointSnapshotBuilder.gaugeDataPoint(labels.add(windowLabel, MeterRates.WINDOW_LABELS[i]), rates[i]));
+        }
+        builders.put(rateName, gaugeBuilder);
+    }
+
+    private static CounterSnapshot.Builder counterBuilder(MetricFamily family, MetricSnapshot.Builder<?> builder) {
+        return builder != null ? (CounterSnapshot.Builder) builder : CounterSnapshot.builder().name(family.name()).help(family.help());
+    }
+
+    private static SummarySnapshot.Builder summaryBuilder(MetricFamily family, MetricSnapshot.Builder<?> builder) {
+        return builder != null ? (SummarySnapshot.Builder) builder : SummarySnapshot.builder().name(family.name()).help(family.help());
+    }
+
+    private static HistogramSnapshot.Builder histogramBuilder(String name, String help, MetricSnapshot.Builder<?> builder) {
+        return builder != null ? (HistogramSnapshot.Builder) builder : HistogramSnapshot.builder().name(name).help(help);
+    }
+
+    /* test */ static Quantiles quantiles(Sampling sampling) {
+        return quantiles(sampling.getSnapshot(), QuantileSelector.DEFAULT_QUANTILES);
+    }
+
+    private static Quantiles quantiles(Snapshot snapshot, List<Double> quantiles) {
+        if (quantiles.isEmpty()) {
+            return Quantiles.EMPTY;
+        }
         Quantiles.Builder quantilesBuilder = Quantiles.builder();
-        for (double quantile : QUANTILES) {
-            quantilesBuilder.quantile(new Quantile(quantile, sampling.getSnapshot().getValue(quantile)));
+        for (double quantile : quantiles) {
+            quantilesBuilder.quantile(new Quantile(quantile, snapshot.getValue(quantile)));
         }
         return quantilesBuilder.build();
     }
@@ -8,7 +8,10 @@ import com.yammer.metrics.core.Metric;
 import com.yammer.metrics.core.MetricName;
 import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.PrometheusNaming;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.LabelInterner;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
+import io.strimzi.kafka.metrics.prometheus.common.PrometheusNameCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +25,8 @@ import java.util.Set;
 public class YammerMetricWrapper extends MetricWrapper {
 
     private static final Logger LOG = LoggerFactory.getLogger(YammerMetricWrapper.class);
+    // Prometheus names shared by all the reporters, keyed by group, type and name
+    private static final PrometheusNameCache NAMES = new PrometheusNameCache();
 
     /**
      * Constructor from Yammer Metrics
@@ -31,7 +36,19 @@ public class YammerMetricWrapper extends MetricWrapper {
      * @param attribute The attribute of the Yammer metric
      */
     public YammerMetricWrapper(String prometheusName, String scope, Metric metric, String attribute) {
-        super(prometheusName, labelsFromScope(scope, prometheusName), metric, attribute);
+        this(prometheusName, scope, metric, attribute, LabelFilter.NONE);
+    }
+
+    /**
+     * Constructor from Yammer Metrics
+     * @param prometheusName The name of the metric in the prometheus format
+     * @param scope The scope of the Yammer metric
+     * @param metric The Yammer metric
+     * @param attribute The attribute of the Yammer metric
+     * @param labelFilter The filter selecting the labels to keep
+     */
+    public YammerMetricWrapper(String prometheusName, String scope, Metric metric, String attribute, LabelFilter labelFilter) {
+        super(prometheusName, labelsFromScope(scope, prometheusName, labelFilter.forMetric(prometheusName)), metric, attribute);
     }
 
     /**
@@ -40,23 +57,34 @@ public class YammerMetricWrapper extends MetricWrapper {
      * @return The prometheus metric name
      */
     public static String prometheusName(MetricName metricName) {
+        return NAMES.prometheusName(metricName.getGroup(), metricName.getType(), metricName.getName(), YammerMetricWrapper::derivePrometheusName);
+    }
+
+    private static String derivePrometheusName(String group, String type, String name) {
         return PrometheusNaming.prometheusName(
                 PrometheusNaming.sanitizeMetricName(
-                        metricName.getGroup() + '_' +
-                        metricName.getType() + '_' +
-                        metricName.getName()).toLowerCase(Locale.ROOT));
+                        group + '_' +
+                        type + '_' +
+                        name).toLowerCase(Locale.ROOT));
     }
 
     static Labels labelsFromScope(String scope, String metricName) {
+        return labelsFromScope(scope, metricName, LabelFilter.Rule.KEEP_ALL);
+    }
+
+    static Labels labelsFromScope(String scope, String metricName, LabelFilter.Rule rule) {
         Labels.Builder builder = Labels.builder();
         Set<String> labelNames = new HashSet<>();
         if (scope != null) {
             String[] parts = scope.split("\\.");
             if (parts.length % 2 == 0) {
                 for (int i = 0; i < parts.length; i += 2) {
-                    String newLabelName = PrometheusNaming.sanitizeLabelName(parts[i]);
+                    String newLabelName = LabelInterner.labelName(parts[i]);
+                    if (!rule.keeps(newLabelName)) {
+                        continue;
+                    }
                     if (labelNames.add(newLabelName)) {
-                        builder.label(newLabelName, parts[i + 1]);
+                        builder.label(newLabelName, LabelInterner.labelValue(parts[i + 1]));
                     } else {
                         LOG.warn("Ignoring duplicate label key: {} with value: {} from metric: {} ", newLabelName, parts[i + 1], metricName);
                     }
@@ -23,14 +23,14 @@ public class ServerKafkaMetricsReporterTest extends ClientMetricsReporterTest {
 
     @Test
     public void testReconfigurableConfigs() {
-        try (ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, kafkaCollector)) {
+        try (ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, prometheusCollector, kafkaCollector)) {
             assertFalse(reporter.reconfigurableConfigs().isEmpty());
         }
     }
 
     @Test
     public void testReconfigure() {
-        try (ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, kafkaCollector)) {
+        try (ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, prometheusCollector, kafkaCollector)) {
             configs.put(ServerMetricsReporterConfig.ALLOWLIST_CONFIG, "kafka_server_group_name.*");
             reporter.configure(configs);
             reporter.contextChange(new KafkaMetricsContext("kafka.server"));
@@ -62,7 +62,7 @@ public class ServerKafkaMetricsReporterTest extends ClientMetricsReporterTest {
 
     @Test
     public void testValidateReconfiguration() {
-        try (ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, kafkaCollector)) {
+        try (ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, prometheusCollector, kafkaCollector)) {
             configs.put(ServerMetricsReporterConfig.ALLOWLIST_CONFIG, "kafka_server_group_name.*");
             reporter.configure(configs);
             reporter.contextChange(new KafkaMetricsContext("kafka.server"));
@@ -77,7 +77,7 @@ public class ServerKafkaMetricsReporterTest extends ClientMetricsReporterTest {
 
     @Test
     public void testHelpMessageInOutput() {
-        ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, kafkaCollector);
+        ServerKafkaMetricsReporter reporter = new ServerKafkaMetricsReporter(registry, prometheusCollector, kafkaCollector);
         configs.put(ServerMetricsReporterConfig.ALLOWLIST_CONFIG, "kafka_server_group_name.*");
         reporter.configure(configs);
         reporter.contextChange(new KafkaMetricsContext("kafka.server"));
@@ -5,12 +5,20 @@
 package io.strimzi.kafka.metrics.prometheus;
 
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import org.apache.kafka.common.config.ConfigException;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Map;
 
 import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.ALLOWLIST_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ClientMetricsReporterConfig.DENYLIST_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ServerMetricsReporterConfig.YAMMER_HISTOGRAMS_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ServerMetricsReporterConfig.YAMMER_METER_RATES_ENABLE_CONFIG;
+import static io.strimzi.kafka.metrics.prometheus.ServerMetricsReporterConfig.YAMMER_QUANTILES_CONFIG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -27,5 +35,43 @@ public class ServerMetricsReporterConfigTest {
         assertFalse(config.allowlist().pattern().contains("pattern1"));
         assertTrue(config.allowlist().pattern().contains("pattern2"));
     }
-}
 
+    @Test
+    public void testReconfigureDenylist() {
+        Map<String, String> props = Map.of(ALLOWLIST_CONFIG, "pattern.*", DENYLIST_CONFIG, "pattern1");
+        ServerMetricsReporterConfig config = new ServerMetricsReporterConfig(props, new PrometheusRegistry());
+        assertFalse(config.isAllowed("pattern1"));
+        assertTrue(config.isAllowed("pattern2"));
+
+        props = Map.of(ALLOWLIST_CONFIG, "pattern.*", DENYLIST_CONFIG, "pattern2");
+        config.reconfigure(props);
+        assertTrue(config.isAllowed("pattern1"));
+        assertFalse(config.isAllowed("pattern2"));
+    }
+
+    @Test
+    public void testServerOnlyConfigs() {
+        // The Yammer configurations are only defined for brokers and controllers
+        for (String name : List.of(YAMMER_HISTOGRAMS_CONFIG, YAMMER_QUANTILES_CONFIG, YAMMER_METER_RATES_ENABLE_CONFIG)) {
+            assertTrue(ServerMetricsReporterConfig.CONFIG_DEF.names().contains(name));
+            assertFalse(ClientMetricsReporterConfig.CONFIG_DEF.names().contains(name));
+        }
+        assertTrue(ServerMetricsReporterConfig.CONFIG_DEF.names().containsAll(ClientMetricsReporterConfig.CONFIG_DEF.names()));
+    }
+
+    @Test
+    public void testYammerQuantiles() {
+        ServerMetricsReporterConfig config = new ServerMetricsReporterConfig(Map.of(), new PrometheusRegistry());
+        assertEquals(List.of(0.50, 0.75, 0.95, 0.98, 0.99, 0.999), config.quantileSelector().forMetric("kafka_server_metric"));
+
+        Map<String, String> props = Map.of(YAMMER_QUANTILES_CONFIG, "kafka_network_requestmetrics_.*=0.99,kafka_server_.*=0.5;0.99,.*=");
+        config = new ServerMetricsReporterConfig(props, new PrometheusRegistry());
+        assertEquals(List.of(0.99), config.quantileSelector().forMetric("kafka_network_requestmetrics_totaltimems"));
+        assertEquals(List.of(0.5, 0.99), config.quantileSelector().forMetric("kafka_server_metric"));
+        assertEquals(List.of(), config.quantileSelector().forMetric("kafka_log_metric"));
+
+        assertThrows(ConfigException.class, () -> new ServerMetricsReporterConfig(Map.of(YAMMER_QUANTILES_CONFIG, "0.99"), new PrometheusRegistry()));
+        assertThrows(ConfigException.class, () -> new ServerMetricsReporterConfig(Map.of(YAMMER_QUANTILES_CONFIG, ".*=2"), new PrometheusRegistry()));
+        assertThrows(ConfigException.class, () -> new ServerMetricsReporterConfig(Map.of(YAMMER_QUANTILES_CONFIG, ".*=p99"), new PrometheusRegistry()));
+    }
+}
@@ -4,26 +4,44 @@
  */
 package io.strimzi.kafka.metrics.prometheus.yammer;
 
+import com.yammer.metrics.core.Counter;
 import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Histogram;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.Metric;
 import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import com.yammer.metrics.core.Sampling;
+import com.yammer.metrics.stats.Snapshot;
+import io.prometheus.metrics.model.snapshots.CounterSnapshot;
+import io.prometheus.metrics.model.snapshots.GaugeSnapshot;
+import io.prometheus.metrics.model.snapshots.HistogramSnapshot;
 import io.prometheus.metrics.model.snapshots.Labels;
 import io.prometheus.metrics.model.snapshots.MetricSnapshot;
+import io.prometheus.metrics.model.snapshots.NativeHistogramBuckets;
+import io.prometheus.metrics.model.snapshots.Quantiles;
+import io.prometheus.metrics.model.snapshots.SummarySnapshot;
 import io.strimzi.kafka.metrics.prometheus.common.AbstractReporter;
+import io.strimzi.kafka.metrics.prometheus.common.LabelFilter;
+import io.strimzi.kafka.metrics.prometheus.common.MetricNameMatcher;
 import io.strimzi.kafka.metrics.prometheus.common.MetricWrapper;
 import io.strimzi.kafka.metrics.prometheus.common.PrometheusCollector;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 
 import static io.strimzi.kafka.metrics.prometheus.MetricsUtils.assertGaugeSnapshot;
 import static io.strimzi.kafka.metrics.prometheus.MetricsUtils.assertInfoSnapshot;
 import static io.strimzi.kafka.metrics.prometheus.YammerTestUtils.newYammerMetric;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+@SuppressWarnings("ClassFanOutComplexity")
 public class YammerCollectorTest {
 
     private Labels labels;
@@ -44,12 +62,7 @@ public class YammerCollectorTest {
 
     @Test
     public void testCollectYammerMetrics() {
-        AbstractReporter reporter = new AbstractReporter() {
-            @Override
-            protected Pattern allowlist() {
-                return Pattern.compile(".*");
-            }
-        };
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
         collector.addReporter(reporter);
 
         List<? extends MetricSnapshot> metrics = collector.collect();
@@ -79,12 +92,7 @@ public class YammerCollectorTest {
 
     @Test
     public void testCollectNonNumericYammerMetrics() {
-        AbstractReporter reporter = new AbstractReporter() {
-            @Override
-            protected Pattern allowlist() {
-                return Pattern.compile(".*");
-            }
-        };
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
         collector.addReporter(reporter);
 
         List<? extends MetricSnapshot> metrics = collector.collect();
@@ -104,12 +112,7 @@ public class YammerCollectorTest {
 
     @Test
     public void testHelpMessage() {
-        AbstractReporter reporter = new AbstractReporter() {
-            @Override
-            protected Pattern allowlist() {
-                return Pattern.compile(".*");
-            }
-        };
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
         collector.addReporter(reporter);
 
         // Test numeric metric
@@ -137,6 +140,282 @@ public class YammerCollectorTest {
         assertEquals(expectedHelpMessage, metrics.get(0).getMetadata().getHelp());
     }
 
+    @Test
+    public void testQuantilesUseSingleSnapshot() {
+        AtomicInteger snapshots = new AtomicInteger();
+        Sampling sampling = () -> {
+            snapshots.incrementAndGet();
+            return new Snapshot(new double[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        };
+
+        Quantiles quantiles = YammerCollector.quantiles(sampling);
+        assertEquals(1, snapshots.get());
+        assertEquals(6, quantiles.size());
+        assertEquals(5.5, quantiles.get(0).getValue());
+        assertEquals(10.0, quantiles.get(5).getValue());
+    }
+
+    @Test
+    public void testCollapsedCounters() {
+        LabelFilter labelFilter = LabelFilter.create(List.of(), List.of(".*=topic"), List.of());
+        AbstractReporter reporter = allowAllReporter(labelFilter);
+        collector.addReporter(reporter);
+
+        MetricsRegistry registry = new MetricsRegistry();
+        for (int partition = 0; partition < 3; partition++) {
+            MetricName metricName = new MetricName("group", "type", "name", "topic.t1.partition." + partition);
+            Counter counter = registry.newCounter(metricName);
+            counter.inc(partition + 1);
+            String prometheusName = YammerMetricWrapper.prometheusName(metricName);
+            reporter.addMetric(metricName, new YammerMetricWrapper(prometheusName, metricName.getScope(), counter, metricName.getName(), labelFilter));
+        }
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(1, metrics.size());
+        CounterSnapshot snapshot = (CounterSnapshot) metrics.get(0);
+        assertEquals(1, snapshot.getDataPoints().size());
+        assertEquals(Labels.of("topic", "t1"), snapshot.getDataPoints().get(0).getLabels());
+        assertEquals(6, snapshot.getDataPoints().get(0).getValue());
+    }
+
+    @Test
+    public void testNativeHistograms() {
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
+        collector.addReporter(reporter);
+        collector.setHistogramMode(HistogramMode.NATIVE);
+
+        MetricName metricName = new MetricName("group", "type", "name", scope);
+        Histogram histogram = new MetricsRegistry().newHistogram(metricName, false);
+        String prometheusName = YammerMetricWrapper.prometheusName(metricName);
+        reporter.addMetric(metricName, new YammerMetricWrapper(prometheusName, metricName.getScope(), histogram, metricName.getName()));
+        histogram.update(0);
+        histogram.update(1);
+        histogram.update(10);
+        histogram.update(100);
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(1, metrics.size());
+        HistogramSnapshot.HistogramDataPointSnapshot dataPoint = ((HistogramSnapshot) metrics.get(0)).getDataPoints().get(0);
+        assertEquals(labels, dataPoint.getLabels());
+        assertEquals(4, dataPoint.getCount());
+        assertEquals(111.0, dataPoint.getSum());
+        assertEquals(NativeHistogram.SCHEMA, dataPoint.getNativeSchema());
+        assertEquals(1, dataPoint.getNativeZeroCount());
+        assertEquals(3, sum(dataPoint.getNativeBucketsForPositiveValues()));
+        assertEquals(NativeHistogram.index(10), dataPoint.getNativeBucketsForPositiveValues().getBucketIndex(1));
+
+        // Bucket counts only increase, each new observation is added once
+        histogram.update(10);
+        metrics = collector.collect();
+        dataPoint = ((HistogramSnapshot) metrics.get(0)).getDataPoints().get(0);
+        assertEquals(5, dataPoint.getCount());
+        assertEquals(4, sum(dataPoint.getNativeBucketsForPositiveValues()));
+        metrics = collector.collect();
+        dataPoint = ((HistogramSnapshot) metrics.get(0)).getDataPoints().get(0);
+        assertEquals(5, dataPoint.getCount());
+        assertEquals(4, sum(dataPoint.getNativeBucketsForPositiveValues()));
+
+        // Clearing the Yammer histogram resets the native histogram
+        histogram.clear();
+        histogram.update(5);
+        metrics = collector.collect();
+        dataPoint = ((HistogramSnapshot) metrics.get(0)).getDataPoints().get(0);
+        assertEquals(1, dataPoint.getCount());
+        assertEquals(0, dataPoint.getNativeZeroCount());
+        assertEquals(NativeHistogram.index(5), dataPoint.getNativeBucketsForPositiveValues().getBucketIndex(0));
+    }
+
+    @Test
+    public void testNativeHistogramCount() {
+        NativeHistogram nativeHistogram = new NativeHistogram();
+        HistogramSnapshot.HistogramDataPointSnapshot dataPoint = nativeHistogram.update(labels, 7, 70.0, new Snapshot(new double[] {1, 10, 100}));
+        assertEquals(7, dataPoint.getCount());
+        assertEquals(70.0, dataPoint.getSum());
+
+        // Observations recorded without a sample are added to the bucket of their mean
+        dataPoint = nativeHistogram.update(labels, 10, 100.0, new Snapshot(new double[0]));
+        assertEquals(10, dataPoint.getCount());
+        assertEquals(100.0, dataPoint.getSum());
+        assertEquals(10, dataPoint.getNativeZeroCount() + sum(dataPoint.getNativeBucketsForPositiveValues()));
+    }
+
+    @Test
+    public void testSummariesAndNativeHistograms() {
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
+        collector.addReporter(reporter);
+        collector.setHistogramMode(HistogramMode.BOTH);
+
+        MetricName metricName = new MetricName("group", "type", "name", scope);
+        Histogram histogram = new MetricsRegistry().newHistogram(metricName, false);
+        String prometheusName = YammerMetricWrapper.prometheusName(metricName);
+        reporter.addMetric(metricName, new YammerMetricWrapper(prometheusName, metricName.getScope(), histogram, metricName.getName()));
+        histogram.update(10);
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(2, metrics.size());
+        metrics.sort(Comparator.comparing(m -> m.getMetadata().getName()));
+        SummarySnapshot summary = (SummarySnapshot) metrics.get(0);
+        assertEquals(prometheusName, summary.getMetadata().getName());
+        assertEquals(1, summary.getDataPoints().get(0).getCount());
+        HistogramSnapshot nativeHistogram = (HistogramSnapshot) metrics.get(1);
+        assertEquals(prometheusName + "_histogram", nativeHistogram.getMetadata().getName());
+        assertEquals(1, nativeHistogram.getDataPoints().get(0).getCount());
+    }
+
+    @Test
+    public void testSelectedQuantiles() {
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
+        collector.addReporter(reporter);
+        collector.setQuantileSelector(QuantileSelector.create(List.of(".*_name1=0.99", ".*=")));
+
+        MetricsRegistry registry = new MetricsRegistry();
+        for (String name : List.of("name1", "name2")) {
+            MetricName metricName = new MetricName("group", "type", name, scope);
+            Histogram histogram = registry.newHistogram(metricName, false);
+            histogram.update(10);
+            String prometheusName = YammerMetricWrapper.prometheusName(metricName);
+            reporter.addMetric(metricName, new YammerMetricWrapper(prometheusName, metricName.getScope(), histogram, metricName.getName()));
+        }
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(2, metrics.size());
+        metrics.sort(Comparator.comparing(m -> m.getMetadata().getName()));
+        SummarySnapshot.SummaryDataPointSnapshot dataPoint = ((SummarySnapshot) metrics.get(0)).getDataPoints().get(0);
+        assertEquals(1, dataPoint.getQuantiles().size());
+        assertEquals(0.99, dataPoint.getQuantiles().get(0).getQuantile());
+        assertEquals(10.0, dataPoint.getQuantiles().get(0).getValue());
+        dataPoint = ((SummarySnapshot) metrics.get(1)).getDataPoints().get(0);
+        assertEquals(0, dataPoint.getQuantiles().size());
+        assertEquals(1, dataPoint.getCount());
+        assertEquals(10.0, dataPoint.getSum());
+    }
+
+    @Test
+    public void testMeterRates() {
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
+        collector.addReporter(reporter);
+        collector.setMeterRatesEnabled(true);
+
+        MetricName metricName = new MetricName("group", "type", "name", scope);
+        Meter meter = new MetricsRegistry().newMeter(metricName, "events", TimeUnit.SECONDS);
+        meter.mark(10);
+        String prometheusName = YammerMetricWrapper.prometheusName(metricName);
+        reporter.addMetric(metricName, new YammerMetricWrapper(prometheusName, metricName.getScope(), meter, metricName.getName()));
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        assertEquals(2, metrics.size());
+        metrics.sort(Comparator.comparing(m -> m.getMetadata().getName()));
+        assertEquals(10, ((CounterSnapshot) metrics.get(0)).getDataPoints().get(0).getValue());
+        GaugeSnapshot rates = (GaugeSnapshot) metrics.get(1);
+        assertEquals(prometheusName + "_rate", rates.getMetadata().getName());
+        assertEquals(3, rates.getDataPoints().size());
+        for (GaugeSnapshot.GaugeDataPointSnapshot dataPoint : rates.getDataPoints()) {
+            assertEquals("v0", dataPoint.getLabels().get("k0"));
+            assertEquals(0.0, dataPoint.getValue());
+        }
+    }
+
+    @Test
+    public void testMeterRatesWithWindowLabel() {
+        AbstractReporter reporter = allowAllReporter(LabelFilter.NONE);
+        collector.addReporter(reporter);
+        collector.setMeterRatesEnabled(true);
+
+        MetricName metricName = new MetricName("group", "type", "name", "window.1h");
+        Meter meter = new MetricsRegistry().newMeter(metricName, "events", TimeUnit.SECONDS);
+        String prometheusName = YammerMetricWrapper.prometheusName(metricName);
+        reporter.addMetric(metricName, new YammerMetricWrapper(prometheusName, metricName.getScope(), meter, metricName.getName()));
+
+        List<? extends MetricSnapshot> metrics = collector.collect();
+        metrics.sort(Comparator.comparing(m -> m.getMetadata().getName()));
+        GaugeSnapshot rates = (GaugeSnapshot) metrics.get(1);
+        assertEquals(3, rates.getDataPoints().size());
+        for (GaugeSnapshot.GaugeDataPointSnapshot dataPoint : rates.getDataPoints()) {
+            assertEquals("1h", dataPoint.getLabels().get("window"));
+            assertNotNull(dataPoint.getLabels().get("rate_window"));
+        }
+    }
+
+    @Test
+    public void testMeterRatesWindows() {
+        MeterRates rates = new MeterRates();
+        long start = 1_000_000L;
+        assertEquals(0.0, rates.update(start, 0)[0]);
+
+        // 1 event per second for 10 minutes, sampled every second
+        double[] values = null;
+        for (int second = 1; second <= 600; second++) {
+            values = rates.update(start + TimeUnit.SECONDS.toMillis(second), second);
+        }
+        assertEquals(1.0, values[0], 0.001);
+        assertEquals(1.0, values[1], 0.001);
+        // The 15 minute window is not covered yet so the rate is computed over the available samples
+        assertEquals(1.0, values[2], 0.001);
+
+        // 10 events per second for 1 minute
+        for (int second = 1; second <= 60; second++) {
+            values = rates.update(start + TimeUnit.SECONDS.toMillis(600 + second), 600 + 10L * second);
+        }
+        assertEquals(10.0, values[0], 0.001);
+        assertEquals((4 * 60 + 600) / 300.0, values[1], 0.001);
+        assertEquals(1200 / 660.0, values[2], 0.001);
+
+        // A recreated meter starts from scratch
+        values = rates.update(start + TimeUnit.SECONDS.toMillis(661), 1);
+        assertEquals(0.0, values[0]);
+    }
+
+    @Test
+    public void testMeterRatesInterpolation() {
+        // With samples that don't line up with the windows, the counts at the start of the windows are interpolated
+        MeterRates rates = new MeterRates();
+        double[] values = null;
+        for (int second = 0; second <= 1200; second += 7) {
+            values = rates.update(TimeUnit.SECONDS.toMillis(second), 3L * second);
+        }
+        for (double value : values) {
+            assertEquals(3.0, value, 0.001);
+        }
+    }
+
+    @Test
+    public void testNativeHistogramBucketIndex() {
+        // Buckets are (base^(i-1), base^i] with base 2^(1/8), so powers of 2 are upper bounds
+        assertEquals(0, NativeHistogram.index(1));
+        assertEquals(1, NativeHistogram.index(1.05));
+        assertEquals(8, NativeHistogram.index(2));
+        assertEquals(-8, NativeHistogram.index(0.5));
+        assertEquals(80, NativeHistogram.index(1024));
+    }
+
+    private static AbstractReporter allowAllReporter(LabelFilter labelFilter) {
+        return new AbstractReporter() {
+            @Override
+            protected MetricNameMatcher allowlist() {
+                return MetricNameMatcher.compile(List.of(".*"));
+            }
+
+            @Override
+            protected LabelFilter labelFilter() {
+                return labelFilter;
+            }
+
+            @Override
+            protected MetricWrapper metricWrapper(Object name, String prometheusName, Object metric) {
+                MetricName metricName = (MetricName) name;
+                return new YammerMetricWrapper(prometheusName, metricName.getScope(), (Metric) metric, metricName.getName(), labelFilter);
+            }
+        };
+    }
+
+    private static long sum(NativeHistogramBuckets buckets) {
+        long sum = 0;
+        for (int i = 0; i < buckets.size(); i++) {
+            sum += buckets.getCount(i);
+        }
+        return sum;
+    }
+
     private <T> MetricWrapper newYammerMetricWrapper(MetricName metricName, Supplier<T> valueSupplier) {
         Gauge<T> gauge = newYammerMetric(valueSupplier);
         String prometheusName = YammerMetricWrapper.prometheusName(metricName);